@@ -0,0 +1,38 @@
+// A* towards the target using capital-to-capital distances as the heuristic. Nodes are reopened
+// when a shorter route turns up later, so the result stays exact for any admissible estimate.
+class AStar implements PathFinder {
+    private final Graph graph;
+    private final LowerBounds bounds;
+
+    AStar(Graph graph, LowerBounds bounds) {
+        this.graph = graph;
+        this.bounds = bounds;
+    }
+
+    @Override
+    public int search(int source, int target, SearchScratch scratch) {
+        scratch.reset();
+        IndexedMinHeap heap = scratch.heap;
+        scratch.reach(source, 0, -1);
+        heap.insertOrDecrease(source, bounds.estimate(source, target));
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            scratch.settled++;
+            if (current == target) {
+                break;
+            }
+            int currentDist = scratch.distance(current);
+            scratch.relaxed += graph.endEdge(current) - graph.firstEdge(current);
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int next = graph.target(e);
+                int newDist = currentDist + graph.weight(e);
+                if (newDist < scratch.distance(next)) {
+                    scratch.reach(next, newDist, current);
+                    heap.insertOrDecrease(next, newDist + bounds.estimate(next, target));
+                }
+            }
+        }
+        return Dijkstra.extractRoute(target, scratch);
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Answers a stream of "from<TAB>to" lines in parallel and writes one result per line, in input order.
+// Input is cut into fixed-size chunks and only a bounded window of chunks is in flight at once, so
+// memory stays flat however long the input is; the oldest chunk is always written first.
+class BatchQueries {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final IRoadTrip roadTrip;
+    private final boolean json;
+    private final int threads;
+
+    private long queries;
+
+    BatchQueries(IRoadTrip roadTrip, String format, int threads) {
+        if (!format.equals("tsv") && !format.equals("json")) {
+            throw new IllegalArgumentException("Unknown batch format: " + format);
+        }
+        this.roadTrip = roadTrip;
+        this.json = format.equals("json");
+        this.threads = Math.max(1, threads);
+    }
+
+    // Returns the number of queries answered
+    long run(BufferedReader in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(pool, window, chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    while (window.size() >= maxInFlight) {
+                        out.write(await(window.poll()));
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(pool, window, chunk);
+            }
+            while (!window.isEmpty()) {
+                out.write(await(window.poll()));
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return queries;
+    }
+
+    private void submit(ExecutorService pool, ArrayDeque<Future<String>> window, List<String> chunk) {
+        queries += chunk.size();
+        window.add(pool.submit(() -> answer(chunk)));
+    }
+
+    private static String await(Future<String> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for batch results", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch query failed", e.getCause());
+        }
+    }
+
+    private String answer(List<String> lines) {
+        StringBuilder out = new StringBuilder(lines.size() * 64);
+        for (String line : lines) {
+            int tab = line.indexOf('\t');
+            String from = tab < 0 ? line.trim() : line.substring(0, tab).trim();
+            String to = tab < 0 ? "" : line.substring(tab + 1).trim();
+            String start = roadTrip.resolveCountry(from);
+            String end = roadTrip.resolveCountry(to);
+            if (start == null || end == null) {
+                writeError(out, from, to, start == null ? "unknown country: " + from : "unknown country: " + to);
+            } else if (!start.equals(end) && !roadTrip.mayBeReachable(start, end)) {
+                // Different components: skip the search and the PathInfo altogether
+                writeUnreachable(out, from, to);
+            } else {
+                writeRoute(out, from, to, start.equals(end), roadTrip.findPath(start, end));
+            }
+        }
+        return out.toString();
+    }
+
+    private void writeRoute(StringBuilder out, String from, String to, boolean sameCountry, IRoadTrip.PathInfo route) {
+        List<String> path = route.getPath();
+        List<Integer> distances = route.getDistances();
+        // An unreachable destination comes back as a path holding only the start country
+        if (path.size() < 2 && !sameCountry) {
+            writeUnreachable(out, from, to);
+            return;
+        }
+        int total = 0;
+        for (int km : distances) {
+            total += km;
+        }
+        if (json) {
+            out.append("{\"from\":");
+            Json.quote(out, from);
+            out.append(",\"to\":");
+            Json.quote(out, to);
+            out.append(",\"distance\":").append(total).append(",\"path\":");
+            Json.stringArray(out, path);
+            out.append(",\"distances\":");
+            Json.intArray(out, distances);
+            out.append("}\n");
+        } else {
+            out.append(from).append('\t').append(to).append('\t').append(total).append('\t');
+            out.append(String.join(" --> ", path)).append('\n');
+        }
+    }
+
+    private void writeUnreachable(StringBuilder out, String from, String to) {
+        if (json) {
+            out.append("{\"from\":");
+            Json.quote(out, from);
+            out.append(",\"to\":");
+            Json.quote(out, to);
+            out.append(",\"distance\":-1,\"path\":[],\"distances\":[]}\n");
+        } else {
+            out.append(from).append('\t').append(to).append('\t').append(-1).append('\t').append('\n');
+        }
+    }
+
+    private void writeError(StringBuilder out, String from, String to, String error) {
+        if (json) {
+            out.append("{\"from\":");
+            Json.quote(out, from);
+            out.append(",\"to\":");
+            Json.quote(out, to);
+            out.append(",\"error\":");
+            Json.quote(out, error);
+            out.append("}\n");
+        } else {
+            out.append(from).append('\t').append(to).append('\t').append(-1).append('\t').append(error).append('\n');
+        }
+    }
+}
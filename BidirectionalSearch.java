@@ -0,0 +1,88 @@
+// Bidirectional search: a forward search from the source over the graph and a backward search
+// from the target over its reverse, expanding whichever frontier has the smaller key. Without
+// bounds both sides run Dijkstra; with bounds each side runs A* towards the opposite endpoint.
+class BidirectionalSearch implements PathFinder {
+    private final Graph graph;
+    private final LowerBounds bounds;
+
+    BidirectionalSearch(Graph graph, LowerBounds bounds) {
+        this.graph = graph;
+        this.bounds = bounds;
+    }
+
+    @Override
+    public int search(int source, int target, SearchScratch scratch) {
+        SearchScratch forward = scratch;
+        SearchScratch backward = scratch.backward();
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, -1);
+        forward.heap.insertOrDecrease(source, estimate(source, target));
+        backward.reach(target, 0, -1);
+        backward.heap.insertOrDecrease(target, estimate(target, source));
+
+        int best = source == target ? 0 : SearchScratch.UNREACHED;
+        int meeting = source == target ? source : -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            int forwardKey = forward.heap.minKey();
+            int backwardKey = backward.heap.minKey();
+            if (bounds == null) {
+                // Any undiscovered route is at least as long as the two frontier radii combined
+                if ((long) forwardKey + backwardKey >= best) {
+                    break;
+                }
+            } else if (forwardKey >= best || backwardKey >= best) {
+                // A frontier key is a lower bound on every route not found yet
+                break;
+            }
+            boolean expandForward = forwardKey <= backwardKey;
+            SearchScratch side = expandForward ? forward : backward;
+            SearchScratch other = expandForward ? backward : forward;
+            Graph edges = expandForward ? graph : graph.reverse();
+            int goal = expandForward ? target : source;
+
+            int current = side.heap.poll();
+            scratch.settled++;
+            int currentDist = side.distance(current);
+            scratch.relaxed += edges.endEdge(current) - edges.firstEdge(current);
+            for (int e = edges.firstEdge(current); e < edges.endEdge(current); e++) {
+                int next = edges.target(e);
+                int newDist = currentDist + edges.weight(e);
+                if (newDist < side.distance(next)) {
+                    side.reach(next, newDist, current);
+                    side.heap.insertOrDecrease(next, newDist + estimate(next, goal));
+                    int otherDist = other.distance(next);
+                    if (otherDist != SearchScratch.UNREACHED && newDist + otherDist < best) {
+                        best = newDist + otherDist;
+                        meeting = next;
+                    }
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return -1;
+        }
+        // Forward half from the meeting node back to the source, then the backward half to the target
+        int length = 0;
+        for (int node = meeting; node >= 0; node = forward.previous(node)) {
+            int from = forward.previous(node);
+            scratch.route[length] = node;
+            scratch.hops[length] = from >= 0 ? forward.distance(node) - forward.distance(from) : 0;
+            length++;
+        }
+        Dijkstra.reverse(scratch.route, 0, length);
+        Dijkstra.reverse(scratch.hops, 0, length);
+        for (int node = meeting, next = backward.previous(node); next >= 0; node = next, next = backward.previous(node)) {
+            scratch.route[length] = next;
+            scratch.hops[length] = backward.distance(node) - backward.distance(next);
+            length++;
+        }
+        scratch.routeLength = length;
+        return best;
+    }
+
+    private int estimate(int from, int to) {
+        return bounds == null ? 0 : bounds.estimate(from, to);
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Capital-to-capital distances from capdist.csv in a dense float matrix indexed by interned state
+// code. The file is memory-mapped and parsed byte by byte; a String is only created the first time
+// a code is seen, and the unused midist column is skipped without being parsed.
+//
+// Beyond DENSE_LIMIT codes the matrix would take gigabytes while a large file lists only a sliver of
+// the pairs, so the distances go into an open-addressing table keyed by the unordered code pair.
+class CapitalDistances {
+    static final int DENSE_LIMIT = 4096;
+    private static final long EMPTY = -1;
+
+    private final String[] codes;
+    private final Map<String, Integer> ids;
+    // Dense: kilometres is the size-by-size matrix. Sparse: pairKeys and pairKilometres are the table.
+    private final float[] kilometres;
+    private final long[] pairKeys;
+    private final float[] pairKilometres;
+
+    CapitalDistances(String[] codes, float[] kilometres) {
+        this(codes, kilometres, null, null);
+    }
+
+    CapitalDistances(String[] codes, long[] pairKeys, float[] pairKilometres) {
+        this(codes, null, pairKeys, pairKilometres);
+    }
+
+    private CapitalDistances(String[] codes, float[] kilometres, long[] pairKeys, float[] pairKilometres) {
+        this.codes = codes;
+        this.kilometres = kilometres;
+        this.pairKeys = pairKeys;
+        this.pairKilometres = pairKilometres;
+        this.ids = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            ids.put(codes[i], i);
+        }
+    }
+
+    int size() {
+        return codes.length;
+    }
+
+    String code(int id) {
+        return codes[id];
+    }
+
+    // Returns the id of the state code, or -1 if capdist.csv does not mention it
+    int id(String code) {
+        Integer id = code == null ? null : ids.get(code);
+        return id == null ? -1 : id;
+    }
+
+    // Distance between two code ids in km, or NaN if the pair is missing
+    float kilometres(int from, int to) {
+        if (kilometres != null) {
+            return kilometres[from * codes.length + to];
+        }
+        long key = pairKey(from, to, codes.length);
+        int mask = pairKeys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (pairKeys[slot] == key) {
+                return pairKilometres[slot];
+            } else if (pairKeys[slot] == EMPTY) {
+                return Float.NaN;
+            }
+        }
+    }
+
+    float kilometres(String from, String to) {
+        int a = id(from);
+        int b = id(to);
+        return a < 0 || b < 0 ? Float.NaN : kilometres(a, b);
+    }
+
+    boolean isDense() {
+        return kilometres != null;
+    }
+
+    // The dense matrix, or null if the distances are sparse
+    float[] matrix() {
+        return kilometres;
+    }
+
+    // The sparse table's keys and distances, or null if the distances are dense
+    long[] pairKeys() {
+        return pairKeys;
+    }
+
+    float[] pairKilometres() {
+        return pairKilometres;
+    }
+
+    // Distances are symmetric, so a pair is stored once under its smaller id first
+    private static long pairKey(int from, int to, int size) {
+        return (long) Math.min(from, to) * size + Math.max(from, to);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    static CapitalDistances load(String filename) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CodeTable table = new CodeTable();
+        int limit = buffer.limit();
+        int pairs = 0;
+        int[] from = new int[Math.max(16, limit / 24)];
+        int[] to = new int[from.length];
+        float[] km = new float[from.length];
+
+        // Skip the header line
+        int pos = 0;
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        pos++;
+
+        int[] commas = new int[5];
+        while (pos < limit) {
+            int lineEnd = pos;
+            int fields = 1;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                if (buffer.get(lineEnd) == ',') {
+                    if (fields <= commas.length) {
+                        commas[fields - 1] = lineEnd;
+                    }
+                    fields++;
+                }
+                lineEnd++;
+            }
+            // Rows are numa,ida,numb,idb,kmdist,midist; anything else is skipped like a malformed line
+            if (fields == 6) {
+                if (pairs == from.length) {
+                    from = Arrays.copyOf(from, pairs * 2);
+                    to = Arrays.copyOf(to, pairs * 2);
+                    km = Arrays.copyOf(km, pairs * 2);
+                }
+                from[pairs] = table.intern(buffer, commas[0] + 1, commas[1]);
+                to[pairs] = table.intern(buffer, commas[2] + 1, commas[3]);
+                km[pairs] = parseNumber(buffer, commas[3] + 1, commas[4]);
+                pairs++;
+            }
+            pos = lineEnd + 1;
+        }
+
+        int size = table.size;
+        String[] codes = Arrays.copyOf(table.codes, size);
+        if (size > DENSE_LIMIT) {
+            return sparse(codes, from, to, km, pairs);
+        }
+        float[] matrix = new float[size * size];
+        Arrays.fill(matrix, Float.NaN);
+        for (int i = 0; i < pairs; i++) {
+            // Add distances for both directions (country1 to country2 and vice versa)
+            matrix[from[i] * size + to[i]] = km[i];
+            matrix[to[i] * size + from[i]] = km[i];
+        }
+        return new CapitalDistances(codes, matrix);
+    }
+
+    // A later row for the same pair, in either direction, replaces the earlier one as in the matrix
+    private static CapitalDistances sparse(String[] codes, int[] from, int[] to, float[] km, int pairs) {
+        int capacity = Integer.highestOneBit(Math.max(16, pairs) * 2 - 1) << 1;
+        long[] keys = new long[capacity];
+        float[] values = new float[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < pairs; i++) {
+            long key = pairKey(from[i], to[i], codes.length);
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = km[i];
+        }
+        return new CapitalDistances(codes, keys, values);
+    }
+
+    private static float parseNumber(MappedByteBuffer buffer, int start, int end) {
+        long whole = 0;
+        long fraction = 0;
+        long scale = 1;
+        boolean inFraction = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (inFraction) {
+                    fraction = fraction * 10 + (b - '0');
+                    scale *= 10;
+                } else {
+                    whole = whole * 10 + (b - '0');
+                }
+            } else if (b == '.') {
+                inFraction = true;
+            } else if (b != ' ' && b != '\r' && b != '\t') {
+                throw new NumberFormatException("Bad distance in capdist.csv at byte " + start);
+            }
+        }
+        return (float) (whole + (double) fraction / scale);
+    }
+
+    // Open-addressing table from code bytes to dense ids, so known codes are matched in place
+    private static class CodeTable {
+        private String[] codes = new String[256];
+        private int[] slots = new int[512];
+        private int size;
+
+        CodeTable() {
+            Arrays.fill(slots, -1);
+        }
+
+        int intern(MappedByteBuffer buffer, int start, int end) {
+            while (start < end && buffer.get(start) == ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) == ' ' || buffer.get(end - 1) == '\r')) {
+                end--;
+            }
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot];
+                if (id < 0) {
+                    byte[] bytes = new byte[end - start];
+                    buffer.get(start, bytes);
+                    return add(slot, new String(bytes, StandardCharsets.US_ASCII));
+                }
+                if (matches(codes[id], buffer, start, end)) {
+                    return id;
+                }
+            }
+        }
+
+        private int add(int slot, String code) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size] = code;
+            slots[slot] = size;
+            if (++size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = codes[id].hashCode() & mask;
+                while (slots[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id;
+            }
+        }
+
+        private static boolean matches(String code, MappedByteBuffer buffer, int start, int end) {
+            if (code.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < code.length(); i++) {
+                if (code.charAt(i) != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
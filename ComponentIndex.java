@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+// Connected components of the border graph, found with union-find when the graph is built. Borders
+// are treated as undirected, so two countries in different components can never reach each other
+// and findPath answers them without searching. Component ids are dense and ordered by size, largest
+// first; isolated countries each form a component of their own.
+class ComponentIndex {
+    private final int[] component;
+    private final int[] sizes;
+    private final int[] borders;
+
+    ComponentIndex(Graph graph) {
+        int n = graph.size();
+        int[] parent = new int[n];
+        int[] rootSize = new int[n];
+        for (int u = 0; u < n; u++) {
+            parent[u] = u;
+            rootSize[u] = 1;
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int a = find(parent, u);
+                int b = find(parent, graph.target(e));
+                if (a != b) {
+                    // Union by size keeps the trees shallow
+                    if (rootSize[a] < rootSize[b]) {
+                        int tmp = a;
+                        a = b;
+                        b = tmp;
+                    }
+                    parent[b] = a;
+                    rootSize[a] += rootSize[b];
+                }
+            }
+        }
+
+        // Number the roots by descending size, ties by lowest node id
+        Integer[] roots = new Integer[n];
+        int count = 0;
+        for (int u = 0; u < n; u++) {
+            if (find(parent, u) == u) {
+                roots[count++] = u;
+            }
+        }
+        Arrays.sort(roots, 0, count, (a, b) -> rootSize[a] != rootSize[b] ? rootSize[b] - rootSize[a] : a - b);
+        int[] idOfRoot = new int[n];
+        sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            idOfRoot[roots[i]] = i;
+            sizes[i] = rootSize[roots[i]];
+        }
+        component = new int[n];
+        borders = new int[count];
+        for (int u = 0; u < n; u++) {
+            component[u] = idOfRoot[find(parent, u)];
+            borders[component[u]] += graph.endEdge(u) - graph.firstEdge(u);
+        }
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]]; // path halving
+            node = parent[node];
+        }
+        return node;
+    }
+
+    int count() {
+        return sizes.length;
+    }
+
+    int componentOf(int node) {
+        return component[node];
+    }
+
+    boolean connected(int a, int b) {
+        return component[a] == component[b];
+    }
+
+    int size(int componentId) {
+        return sizes[componentId];
+    }
+
+    // Directed borders inside the component; each two-way border counts twice
+    int borderCount(int componentId) {
+        return borders[componentId];
+    }
+}
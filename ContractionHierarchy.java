@@ -0,0 +1,443 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Contraction hierarchies: countries are contracted one by one in order of importance, and a
+// shortcut is added wherever removing a country would lengthen a route between its neighbors.
+// A query is then a bidirectional search that only ever climbs to higher-ranked countries.
+//
+// Every edge, original or shortcut, has an id; a shortcut remembers the two edges it spans, so the
+// search result is unpacked back into the real border-by-border hops. Preprocessing contracts an
+// independent set of locally least important nodes per round, computing their shortcuts in parallel.
+class ContractionHierarchy implements PathFinder {
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeWeight;
+    // For a shortcut, the edges (from -> middle) and (middle -> to); -1 for an original border
+    private final int[] edgeFirst;
+    private final int[] edgeSecond;
+
+    private final int[] rank;
+    private final int shortcuts;
+
+    // Edges leaving each node towards a higher rank (forward search) and edges entering it from a
+    // higher rank (backward search), both in CSR form
+    private final int[] upOffsets;
+    private final int[] upEdges;
+    private final int[] downOffsets;
+    private final int[] downEdges;
+
+    ContractionHierarchy(Graph graph) {
+        Contractor contractor = new Contractor(graph);
+        contractor.contractAll();
+
+        int edges = contractor.edgeCount;
+        edgeFrom = Arrays.copyOf(contractor.from, edges);
+        edgeTo = Arrays.copyOf(contractor.to, edges);
+        edgeWeight = Arrays.copyOf(contractor.weight, edges);
+        edgeFirst = Arrays.copyOf(contractor.first, edges);
+        edgeSecond = Arrays.copyOf(contractor.second, edges);
+        rank = contractor.rank;
+        shortcuts = contractor.shortcutCount;
+
+        int n = graph.size();
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        // Edges that were replaced by a shorter one while both endpoints were live are dead; a
+        // shortcut only ever spans edges of a contracted node, which are never replaced
+        boolean[] live = contractor.liveEdges();
+        for (int e = 0; e < edges; e++) {
+            if (!live[e]) {
+                continue;
+            }
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                upOffsets[edgeFrom[e] + 1]++;
+            } else {
+                downOffsets[edgeTo[e] + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            upOffsets[u + 1] += upOffsets[u];
+            downOffsets[u + 1] += downOffsets[u];
+        }
+        upEdges = new int[upOffsets[n]];
+        downEdges = new int[downOffsets[n]];
+        int[] upNext = Arrays.copyOf(upOffsets, n);
+        int[] downNext = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < edges; e++) {
+            if (!live[e]) {
+                continue;
+            }
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                upEdges[upNext[edgeFrom[e]]++] = e;
+            } else {
+                downEdges[downNext[edgeTo[e]]++] = e;
+            }
+        }
+    }
+
+    int shortcutCount() {
+        return shortcuts;
+    }
+
+    // Both searches store the id of the edge they arrived by as the node's "previous" entry
+    @Override
+    public int search(int source, int target, SearchScratch scratch) {
+        SearchScratch forward = scratch;
+        SearchScratch backward = scratch.backward();
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, -1);
+        forward.heap.insertOrDecrease(source, 0);
+        backward.reach(target, 0, -1);
+        backward.heap.insertOrDecrease(target, 0);
+
+        int best = source == target ? 0 : SearchScratch.UNREACHED;
+        int meeting = source == target ? source : -1;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.minKey() < best;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.minKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            boolean expandForward = forwardOpen && (!backwardOpen || forward.heap.minKey() <= backward.heap.minKey());
+            SearchScratch side = expandForward ? forward : backward;
+            SearchScratch other = expandForward ? backward : forward;
+            int[] offsets = expandForward ? upOffsets : downOffsets;
+            int[] adjacency = expandForward ? upEdges : downEdges;
+            int[] ends = expandForward ? edgeTo : edgeFrom;
+
+            int current = side.heap.poll();
+            scratch.settled++;
+            int currentDist = side.distance(current);
+            scratch.relaxed += offsets[current + 1] - offsets[current];
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int e = adjacency[i];
+                int next = ends[e];
+                int newDist = currentDist + edgeWeight[e];
+                if (newDist < side.distance(next)) {
+                    side.reach(next, newDist, e);
+                    side.heap.insertOrDecrease(next, newDist);
+                    int otherDist = other.distance(next);
+                    if (otherDist != SearchScratch.UNREACHED && newDist + otherDist < best) {
+                        best = newDist + otherDist;
+                        meeting = next;
+                    }
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return -1;
+        }
+        // Collect the forward edges from the meeting node back to the source; the backward scratch's
+        // route array is free at this point and serves as the buffer
+        int[] upward = backward.route;
+        int count = 0;
+        for (int e = forward.previous(meeting); e >= 0; e = forward.previous(edgeFrom[e])) {
+            upward[count++] = e;
+        }
+        scratch.route[0] = source;
+        scratch.hops[0] = 0;
+        scratch.routeLength = 1;
+        for (int i = count - 1; i >= 0; i--) {
+            unpack(upward[i], scratch);
+        }
+        for (int e = backward.previous(meeting); e >= 0; e = backward.previous(edgeTo[e])) {
+            unpack(e, scratch);
+        }
+        return best;
+    }
+
+    // Appends the real borders behind edge e to the route. Shortcuts nest as deep as the contraction
+    // order, so they are expanded depth-first on the scratch's stack rather than by recursion.
+    private void unpack(int e, SearchScratch scratch) {
+        int[] stack = scratch.stack(1);
+        int top = 0;
+        stack[top++] = e;
+        while (top > 0) {
+            int edge = stack[--top];
+            if (edgeFirst[edge] < 0) {
+                scratch.route[scratch.routeLength] = edgeTo[edge];
+                scratch.hops[scratch.routeLength] = edgeWeight[edge];
+                scratch.routeLength++;
+                continue;
+            }
+            if (top + 2 > stack.length) {
+                stack = scratch.stack(top + 2);
+            }
+            // The second half goes on first so the first half comes off, and is appended, first
+            stack[top++] = edgeSecond[edge];
+            stack[top++] = edgeFirst[edge];
+        }
+    }
+
+    // Mutable preprocessing state. Adjacency lists hold edge ids and skip contracted endpoints lazily.
+    private static final class Contractor {
+        private static final int WITNESS_SETTLE_LIMIT = 500;
+
+        final int n;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int[] weight = new int[16];
+        int[] first = new int[16];
+        int[] second = new int[16];
+        int edgeCount;
+        int shortcutCount;
+
+        final int[][] out;
+        final int[][] in;
+        final int[] outSize;
+        final int[] inSize;
+
+        final boolean[] contracted;
+        // Nodes contracted in the current round; witness searches must avoid them too
+        final boolean[] selected;
+        final int[] rank;
+        final int[] deletedNeighbors;
+        final int[] priority;
+        final ThreadLocal<SearchScratch> scratches;
+
+        Contractor(Graph graph) {
+            n = graph.size();
+            out = new int[n][];
+            in = new int[n][];
+            outSize = new int[n];
+            inSize = new int[n];
+            for (int u = 0; u < n; u++) {
+                out[u] = new int[Math.max(2, graph.endEdge(u) - graph.firstEdge(u))];
+                in[u] = new int[Math.max(2, graph.reverse().endEdge(u) - graph.reverse().firstEdge(u))];
+            }
+            contracted = new boolean[n];
+            selected = new boolean[n];
+            rank = new int[n];
+            deletedNeighbors = new int[n];
+            priority = new int[n];
+            scratches = ThreadLocal.withInitial(() -> new SearchScratch(n));
+
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                    if (graph.target(e) != u) {
+                        addOrImprove(u, graph.target(e), graph.weight(e), -1, -1);
+                    }
+                }
+            }
+        }
+
+        void contractAll() {
+            int[] remaining = IntStream.range(0, n).toArray();
+            IntStream.of(remaining).parallel().forEach(v -> priority[v] = simulate(v));
+            int nextRank = 0;
+            boolean[] touched = new boolean[n];
+
+            while (remaining.length > 0) {
+                int[] round = IntStream.of(remaining).parallel().filter(this::isLocalMinimum).toArray();
+                for (int v : round) {
+                    selected[v] = true;
+                }
+                int[][] found = new int[round.length][];
+                IntStream.range(0, round.length).parallel().forEach(i -> found[i] = shortcuts(round[i]));
+
+                Arrays.fill(touched, false);
+                for (int i = 0; i < round.length; i++) {
+                    int v = round[i];
+                    int[] s = found[i];
+                    for (int k = 0; k < s.length; k += 5) {
+                        if (addOrImprove(s[k], s[k + 1], s[k + 2], s[k + 3], s[k + 4])) {
+                            shortcutCount++;
+                        }
+                    }
+                    contracted[v] = true;
+                    selected[v] = false;
+                    rank[v] = nextRank++;
+                    for (int i2 = 0; i2 < outSize[v]; i2++) {
+                        touch(to[out[v][i2]], touched);
+                    }
+                    for (int i2 = 0; i2 < inSize[v]; i2++) {
+                        touch(from[in[v][i2]], touched);
+                    }
+                }
+
+                remaining = IntStream.of(remaining).filter(v -> !contracted[v]).toArray();
+                IntStream.of(remaining).parallel().filter(v -> touched[v]).forEach(v -> priority[v] = simulate(v));
+            }
+        }
+
+        private void touch(int neighbor, boolean[] touched) {
+            if (!contracted[neighbor]) {
+                deletedNeighbors[neighbor]++;
+                touched[neighbor] = true;
+            }
+        }
+
+        // A node is contracted this round if it beats every live neighbor; ties go to the lower id
+        private boolean isLocalMinimum(int v) {
+            for (int i = 0; i < outSize[v]; i++) {
+                if (beats(to[out[v][i]], v)) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                if (beats(from[in[v][i]], v)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean beats(int neighbor, int v) {
+            return !contracted[neighbor] && neighbor != v
+                    && (priority[neighbor] < priority[v] || (priority[neighbor] == priority[v] && neighbor < v));
+        }
+
+        // Edge difference plus the number of already contracted neighbors, which spreads contraction out
+        private int simulate(int v) {
+            int live = 0;
+            for (int i = 0; i < outSize[v]; i++) {
+                live += contracted[to[out[v][i]]] ? 0 : 1;
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                live += contracted[from[in[v][i]]] ? 0 : 1;
+            }
+            return shortcuts(v).length / 5 - live + deletedNeighbors[v];
+        }
+
+        // The shortcuts contracting v needs, packed as (from, to, weight, first edge, second edge)
+        private int[] shortcuts(int v) {
+            int[] found = new int[0];
+            int count = 0;
+            SearchScratch scratch = scratches.get();
+            for (int i = 0; i < inSize[v]; i++) {
+                int inEdge = in[v][i];
+                int u = from[inEdge];
+                if (isGone(u)) {
+                    continue;
+                }
+                int limit = -1;
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = to[out[v][j]];
+                    if (w != u && !isGone(w)) {
+                        limit = Math.max(limit, weight[inEdge] + weight[out[v][j]]);
+                    }
+                }
+                if (limit < 0) {
+                    continue;
+                }
+                witnessSearch(u, v, limit, scratch);
+                for (int j = 0; j < outSize[v]; j++) {
+                    int outEdge = out[v][j];
+                    int w = to[outEdge];
+                    if (w == u || isGone(w)) {
+                        continue;
+                    }
+                    int via = weight[inEdge] + weight[outEdge];
+                    if (scratch.distance(w) > via) {
+                        if (count + 5 > found.length) {
+                            found = Arrays.copyOf(found, Math.max(10, found.length * 2));
+                        }
+                        found[count++] = u;
+                        found[count++] = w;
+                        found[count++] = via;
+                        found[count++] = inEdge;
+                        found[count++] = outEdge;
+                    }
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        private boolean isGone(int node) {
+            return contracted[node] || selected[node];
+        }
+
+        // Bounded Dijkstra from u that avoids v and every contracted or selected node. Stopping early
+        // only means a shortcut may be added that was not strictly needed, never a missing one.
+        private void witnessSearch(int u, int v, int limit, SearchScratch scratch) {
+            scratch.reset();
+            scratch.reach(u, 0, -1);
+            scratch.heap.insertOrDecrease(u, 0);
+            int settled = 0;
+            while (!scratch.heap.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+                if (scratch.heap.minKey() > limit) {
+                    break;
+                }
+                int current = scratch.heap.poll();
+                int currentDist = scratch.distance(current);
+                for (int i = 0; i < outSize[current]; i++) {
+                    int e = out[current][i];
+                    int next = to[e];
+                    if (next == v || (isGone(next) && next != u)) {
+                        continue;
+                    }
+                    int newDist = currentDist + weight[e];
+                    if (newDist < scratch.distance(next)) {
+                        scratch.reach(next, newDist, current);
+                        scratch.heap.insertOrDecrease(next, newDist);
+                    }
+                }
+            }
+        }
+
+        // Adds edge u -> w, or replaces the existing one if the new weight is smaller; true if stored
+        boolean addOrImprove(int u, int w, int edgeWeight, int firstEdge, int secondEdge) {
+            int existingSlot = -1;
+            for (int i = 0; i < outSize[u]; i++) {
+                if (to[out[u][i]] == w) {
+                    existingSlot = i;
+                    break;
+                }
+            }
+            if (existingSlot >= 0 && weight[out[u][existingSlot]] <= edgeWeight) {
+                return false;
+            }
+            int e = newEdge(u, w, edgeWeight, firstEdge, secondEdge);
+            if (existingSlot >= 0) {
+                int old = out[u][existingSlot];
+                out[u][existingSlot] = e;
+                for (int i = 0; i < inSize[w]; i++) {
+                    if (in[w][i] == old) {
+                        in[w][i] = e;
+                        break;
+                    }
+                }
+            } else {
+                if (outSize[u] == out[u].length) {
+                    out[u] = Arrays.copyOf(out[u], outSize[u] * 2);
+                }
+                out[u][outSize[u]++] = e;
+                if (inSize[w] == in[w].length) {
+                    in[w] = Arrays.copyOf(in[w], inSize[w] * 2);
+                }
+                in[w][inSize[w]++] = e;
+            }
+            return true;
+        }
+
+        private int newEdge(int u, int w, int edgeWeight, int firstEdge, int secondEdge) {
+            if (edgeCount == from.length) {
+                int capacity = edgeCount * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            from[edgeCount] = u;
+            to[edgeCount] = w;
+            weight[edgeCount] = edgeWeight;
+            first[edgeCount] = firstEdge;
+            second[edgeCount] = secondEdge;
+            return edgeCount++;
+        }
+
+        // Edges still referenced by some adjacency list, i.e. not replaced by a shorter one
+        boolean[] liveEdges() {
+            boolean[] live = new boolean[edgeCount];
+            for (int u = 0; u < n; u++) {
+                for (int i = 0; i < outSize[u]; i++) {
+                    live[out[u][i]] = true;
+                }
+            }
+            return live;
+        }
+    }
+}
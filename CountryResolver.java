@@ -0,0 +1,119 @@
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Resolves country names, aliases and state codes in O(1). All data files and user input go through
+// the same alias table, so every spelling ends up at the name borders.txt uses for the country.
+class CountryResolver {
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        // Short forms and parenthesised variants used inside borders.txt
+        alias("US", "United States");
+        alias("UK", "United Kingdom");
+        alias("UAE", "United Arab Emirates");
+        alias("Macedonia", "North Macedonia");
+        alias("Czech Republic", "Czechia");
+        alias("The Gambia", "Gambia, The");
+        alias("Turkey (Turkiye)", "Turkey");
+        alias("Burkina", "Burkina Faso");
+        alias("Korea, North", "North Korea");
+        alias("Korea, South", "South Korea");
+        alias("Democratic Republic of the Congo", "Congo, Democratic Republic of the");
+        alias("Republic of the Congo", "Congo, Republic of the");
+        alias("Denmark (Greenland)", "Denmark");
+        alias("Morocco (Ceuta)", "Morocco");
+        alias("Spain (Ceuta)", "Spain");
+        alias("Russia (Kaliningrad)", "Russia");
+        alias("Russia (Kaliningrad Oblast)", "Russia");
+        alias("Lithuania (Kaliningrad Oblast)", "Lithuania");
+        alias("Poland (Kaliningrad Oblast)", "Poland");
+
+        // Historical and formal names used by state_name.tsv
+        alias("United States of America", "United States");
+        alias("Zimbabwe (Rhodesia)", "Zimbabwe");
+        alias("Tanzania/Tanganyika", "Tanzania");
+        alias("Congo, Democratic Republic of (Zaire)", "Congo, Democratic Republic of the");
+        alias("Congo", "Congo, Republic of the");
+        alias("Yemen (Arab Republic of Yemen)", "Yemen");
+        alias("Vietnam, Democratic Republic of", "Vietnam");
+        alias("Kyrgyz Republic", "Kyrgyzstan");
+        alias("Cambodia (Kampuchea)", "Cambodia");
+        alias("Myanmar (Burma)", "Burma");
+        alias("German Federal Republic", "Germany");
+        alias("Germany (Prussia)", "Germany");
+        alias("Italy/Sardinia", "Italy");
+        alias("Russia (Soviet Union)", "Russia");
+        alias("Belarus (Byelorussia)", "Belarus");
+        alias("Iran (Persia)", "Iran");
+        alias("Turkey (Ottoman Empire)", "Turkey");
+        alias("Burkina Faso (Upper Volta)", "Burkina Faso");
+        alias("East Timor", "Timor-Leste");
+        alias("Surinam", "Suriname");
+        alias("Sri Lanka (Ceylon)", "Sri Lanka");
+        alias("Macedonia (Former Yugoslav Republic of)", "North Macedonia");
+        alias("Bahamas", "Bahamas, The");
+        alias("Gambia", "Gambia, The");
+        alias("Bosnia-Herzegovina", "Bosnia and Herzegovina");
+        alias("Swaziland", "Eswatini");
+        alias("Korea, People's Republic of", "North Korea");
+        alias("Korea, Republic of", "South Korea");
+        alias("Cape Verde", "Cabo Verde");
+        alias("Cote D\u2019Ivoire", "Cote d'Ivoire");
+        alias("Rumania", "Romania");
+    }
+
+    private static void alias(String variant, String canonical) {
+        ALIASES.put(key(variant), canonical);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // Changes whenever the alias table does, so cached graphs built with an older table are rebuilt
+    static int aliasFingerprint() {
+        return ALIASES.hashCode();
+    }
+
+    // Maps an alias to its canonical name; names without an alias are returned unchanged
+    static String canonicalName(String name) {
+        String canonical = ALIASES.get(key(name));
+        return canonical == null ? name : canonical;
+    }
+
+    private final Map<String, String> codesByName = new HashMap<>();
+    private final Map<String, String> namesByCode = new HashMap<>();
+    private final Map<String, String> knownNames = new HashMap<>();
+
+    // countryCodes maps canonical country names to state codes, as returned by readStateName
+    CountryResolver(Map<String, String> countryCodes) {
+        for (Map.Entry<String, String> entry : countryCodes.entrySet()) {
+            codesByName.put(key(entry.getKey()), entry.getValue());
+            namesByCode.put(key(entry.getValue()), entry.getKey());
+            knownNames.put(key(entry.getKey()), entry.getKey());
+        }
+    }
+
+    // Makes a country without a state code (e.g. a territory from borders.txt) resolvable by name
+    void addName(String name) {
+        knownNames.putIfAbsent(key(name), name);
+    }
+
+    // The state code of a country name or alias, or null if it has none
+    String code(String name) {
+        return codesByName.get(key(canonicalName(name)));
+    }
+
+    // The canonical country name for a state code, or null if the code is unknown
+    String name(String code) {
+        return namesByCode.get(key(code));
+    }
+
+    // The canonical name for any spelling, alias or state code typed by a user, or null if unknown
+    String resolve(String input) {
+        String trimmed = input.trim();
+        String name = knownNames.get(key(canonicalName(trimmed)));
+        return name != null ? name : name(trimmed);
+    }
+}
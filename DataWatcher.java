@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Calls onChange after any of the watched files is written, created or moved into place. Copying or
+// saving a file fires several events, so onChange only runs once the directories have been quiet for
+// QUIET_MILLIS, and a burst of writes to all three data files triggers a single reload.
+class DataWatcher implements Runnable {
+    private static final long QUIET_MILLIS = 500;
+
+    private final WatchService watcher;
+    private final Set<Path> files = new HashSet<>();
+    private final Runnable onChange;
+
+    DataWatcher(Path[] watched, Runnable onChange) throws IOException {
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.onChange = onChange;
+        // Files cannot be watched on their own, only the directories holding them
+        Set<Path> directories = new HashSet<>();
+        for (Path file : watched) {
+            Path absolute = file.toAbsolutePath().normalize();
+            files.add(absolute);
+            if (directories.add(absolute.getParent())) {
+                absolute.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    // Ends the watching thread; no reload starts afterwards
+    void close() throws IOException {
+        watcher.close();
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "data-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!drain(watcher.take())) {
+                    continue;
+                }
+                WatchKey next;
+                while ((next = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(next);
+                }
+                onChange.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped by close() or along with the process
+        }
+    }
+
+    // True if the key reported a change to one of the watched files; an overflow may have hidden one
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || files.contains(directory.resolve((Path) event.context()));
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,124 @@
+// Single-source Dijkstra over the CSR graph that stops once the target is settled.
+class Dijkstra implements PathFinder {
+    private final Graph graph;
+
+    Dijkstra(Graph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public int search(int source, int target, SearchScratch scratch) {
+        settle(source, target, scratch, null);
+        return extractRoute(target, scratch);
+    }
+
+    // Like search, but only uses the countries and borders the mask allows
+    int search(int source, int target, SearchScratch scratch, RouteMask mask) {
+        settle(source, target, scratch, mask);
+        return extractRoute(target, scratch);
+    }
+
+    // Settles every node reachable from source, leaving the full shortest-path tree in scratch
+    void searchAll(int source, SearchScratch scratch) {
+        settle(source, -1, scratch, null);
+    }
+
+    void searchAll(int source, SearchScratch scratch, RouteMask mask) {
+        settle(source, -1, scratch, mask);
+    }
+
+    // Settles nodes outward from source until the next one is farther than maxDistance or limit nodes
+    // besides the source are settled. Those nodes, nearest first, are left in scratch.route with their
+    // border counts in scratch.depth(); returns how many there are. The mask may be null.
+    int searchWithin(int source, int maxDistance, int limit, SearchScratch scratch, RouteMask mask) {
+        scratch.reset();
+        IndexedMinHeap heap = scratch.heap;
+        int[] depth = scratch.depth();
+        scratch.reach(source, 0, -1);
+        heap.insertOrDecrease(source, 0);
+        depth[source] = 0;
+
+        int found = 0;
+        while (!heap.isEmpty() && found < limit) {
+            int current = heap.poll();
+            scratch.settled++;
+            int currentDist = scratch.distance(current);
+            if (current != source) {
+                // The predecessor was settled first, so its border count is final
+                depth[current] = depth[scratch.previous(current)] + 1;
+                scratch.route[found++] = current;
+            }
+            scratch.relaxed += graph.endEdge(current) - graph.firstEdge(current);
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int next = graph.target(e);
+                if (mask != null && !mask.allows(e, next)) {
+                    continue;
+                }
+                // Nodes past the budget never enter the heap, so it empties once the budget is spent
+                int newDist = currentDist + graph.weight(e);
+                if (newDist <= maxDistance && newDist < scratch.distance(next)) {
+                    scratch.reach(next, newDist, current);
+                    heap.insertOrDecrease(next, newDist);
+                }
+            }
+        }
+        scratch.routeLength = found;
+        return found;
+    }
+
+    private void settle(int source, int target, SearchScratch scratch, RouteMask mask) {
+        scratch.reset();
+        IndexedMinHeap heap = scratch.heap;
+        scratch.reach(source, 0, -1);
+        heap.insertOrDecrease(source, 0);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            scratch.settled++;
+            if (current == target) {
+                break;
+            }
+            int currentDist = scratch.distance(current);
+            scratch.relaxed += graph.endEdge(current) - graph.firstEdge(current);
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int next = graph.target(e);
+                if (mask != null && !mask.allows(e, next)) {
+                    continue;
+                }
+                int newDist = currentDist + graph.weight(e);
+                if (newDist < scratch.distance(next)) {
+                    scratch.reach(next, newDist, current);
+                    heap.insertOrDecrease(next, newDist);
+                }
+            }
+        }
+    }
+
+    // Copies the predecessor chain ending at target into scratch.route; returns its length in km or -1
+    static int extractRoute(int target, SearchScratch scratch) {
+        int total = scratch.distance(target);
+        if (total == SearchScratch.UNREACHED) {
+            return -1;
+        }
+        // Walk the predecessor chain backwards, then flip it in place
+        int length = 0;
+        for (int node = target; node >= 0; node = scratch.previous(node)) {
+            int from = scratch.previous(node);
+            scratch.route[length] = node;
+            scratch.hops[length] = from >= 0 ? scratch.distance(node) - scratch.distance(from) : 0;
+            length++;
+        }
+        reverse(scratch.route, 0, length);
+        reverse(scratch.hops, 0, length);
+        scratch.routeLength = length;
+        return total;
+    }
+
+    static void reverse(int[] values, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
@@ -1,25 +1,214 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.CRC32;
 
+// Immutable country graph: names are interned to dense ids and the adjacency is
+// stored in compressed sparse row form, so edges of u are [offsets[u], offsets[u + 1]).
 class Graph {
-    private Map<String, Map<String, Integer>> borders;
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final Graph reverse;
+    private final ComponentIndex components;
 
-    public Graph(Map<String, Map<String, Integer>> borders) {
-        this.borders = borders;
+    private Graph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets, int[] weights) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.components = new ComponentIndex(this);
+        this.reverse = transpose();
+    }
+
+    // Rebuilds a graph from its raw CSR arrays, e.g. when loading a snapshot
+    static Graph of(String[] names, int[] offsets, int[] targets, int[] weights) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int u = 0; u < names.length; u++) {
+            ids.put(names[u], u);
+        }
+        return new Graph(names, ids, offsets, targets, weights);
+    }
+
+    // The reverse view shares names and ids, and points back at this graph
+    private Graph(Graph forward, int[] offsets, int[] targets, int[] weights) {
+        this.names = forward.names;
+        this.ids = forward.ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.reverse = forward;
+        this.components = forward.components;
+    }
+
+    private Graph transpose() {
+        int n = names.length;
+        int[] reverseOffsets = new int[n + 1];
+        for (int e = 0; e < targets.length; e++) {
+            reverseOffsets[targets[e] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            reverseOffsets[u + 1] += reverseOffsets[u];
+        }
+        int[] next = Arrays.copyOf(reverseOffsets, n);
+        int[] reverseTargets = new int[targets.length];
+        int[] reverseWeights = new int[targets.length];
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int slot = next[targets[e]]++;
+                reverseTargets[slot] = u;
+                reverseWeights[slot] = weights[e];
+            }
+        }
+        return new Graph(this, reverseOffsets, reverseTargets, reverseWeights);
+    }
+
+    // The same countries with every border reversed, for searches that run backwards from a target
+    public Graph reverse() {
+        return reverse;
+    }
+
+    public ComponentIndex components() {
+        return components;
+    }
+
+    public int shortestBorder() {
+        int shortest = Integer.MAX_VALUE;
+        for (int weight : weights) {
+            shortest = Math.min(shortest, weight);
+        }
+        return shortest;
+    }
+
+    // CRC32 over names and adjacency, used to tie derived files to the graph they were built from
+    public long fingerprint() {
+        CRC32 crc = new CRC32();
+        for (String name : names) {
+            crc.update(name.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        for (int[] array : new int[][] {offsets, targets, weights}) {
+            for (int value : array) {
+                crc.update(value >>> 24);
+                crc.update(value >>> 16);
+                crc.update(value >>> 8);
+                crc.update(value);
+            }
+        }
+        return crc.getValue();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    // Returns the id of the country, or -1 if it is not a vertex of the graph
+    public int id(String country) {
+        Integer id = ids.get(country);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int firstEdge(int node) {
+        return offsets[node];
+    }
+
+    public int endEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int weight(int edge) {
+        return weights[edge];
     }
 
     public void printGraph() {
-        for (String country : borders.keySet()) {
-            System.out.print(country + " borders: ");
-            Map<String, Integer> neighbors = borders.get(country);
-            for (Map.Entry<String, Integer> entry : neighbors.entrySet()) {
-                System.out.print(entry.getKey() + "(" + entry.getValue() + "km) ");
+        for (int u = 0; u < names.length; u++) {
+            System.out.print(names[u] + " -> ");
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                System.out.print(names[targets[e]] + "(" + weights[e] + " km) ");
             }
             System.out.println();
         }
     }
 
+    static class Builder {
+        private String[] names;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int nodeCount;
 
+        private int[] edgeFrom = new int[16];
+        private int[] edgeTo = new int[16];
+        private int[] edgeWeight = new int[16];
+        private int edgeCount;
 
+        Builder(int expectedCountries) {
+            names = new String[Math.max(expectedCountries, 1)];
+        }
 
+        // Interns the country and returns its id; adding a known country returns the existing id
+        int addCountry(String country) {
+            Integer existing = ids.get(country);
+            if (existing != null) {
+                return existing;
+            }
+            if (nodeCount == names.length) {
+                names = Arrays.copyOf(names, nodeCount * 2);
+            }
+            names[nodeCount] = country;
+            ids.put(country, nodeCount);
+            return nodeCount++;
+        }
+
+        int id(String country) {
+            Integer id = ids.get(country);
+            return id == null ? -1 : id;
+        }
+
+        void addBorder(int from, int to, int weight) {
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeWeight = Arrays.copyOf(edgeWeight, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeWeight[edgeCount] = weight;
+            edgeCount++;
+        }
+
+        Graph build() {
+            // Counting sort by source keeps each country's borders in insertion order
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[edgeFrom[i] + 1]++;
+            }
+            for (int u = 0; u < nodeCount; u++) {
+                offsets[u + 1] += offsets[u];
+            }
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int slot = next[edgeFrom[i]]++;
+                targets[slot] = edgeTo[i];
+                weights[slot] = edgeWeight[i];
+            }
+            return Graph.of(Arrays.copyOf(names, nodeCount), offsets, targets, weights);
+        }
+    }
 }
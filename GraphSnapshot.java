@@ -0,0 +1,227 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Versioned binary image of a built graph: the country/state-code table, the CSR adjacency and the
+// capital distances, as the dense matrix or the sparse pair table CapitalDistances holds them. The
+// header records the size and mtime of each source file and a CRC32 of the payload; a snapshot whose
+// sources changed, or that fails the checksum, is ignored.
+//
+// Layout: magic, version, alias-table fingerprint, source count, (size, mtime) per source, payload
+// length, payload CRC32, then the payload. Strings are an int byte count followed by UTF-8 bytes. The
+// payload ends with the three skipped-border counts, so a start from the snapshot reports the same
+// metrics as a rebuild.
+class GraphSnapshot {
+    private static final int MAGIC = 0x49525453; // "IRTS"
+    private static final int VERSION = 4;
+
+    private final Graph graph;
+    private final CapitalDistances distances;
+    private final Map<String, String> countryCodes;
+    private final long[] skipped;
+
+    private GraphSnapshot(Graph graph, CapitalDistances distances, Map<String, String> countryCodes,
+                          long[] skipped) {
+        this.graph = graph;
+        this.distances = distances;
+        this.countryCodes = countryCodes;
+        this.skipped = skipped;
+    }
+
+    Graph graph() {
+        return graph;
+    }
+
+    CapitalDistances distances() {
+        return distances;
+    }
+
+    // Canonical country names to state codes, as readStateName returns them
+    Map<String, String> countryCodes() {
+        return countryCodes;
+    }
+
+    // Borders dropped while the graph was built, as createGraph counted them into its skipped array
+    long[] skipped() {
+        return skipped.clone();
+    }
+
+    // Returns the snapshot, or null if it is missing, stale, of another version or corrupt
+    static GraphSnapshot load(Path file, Path[] sources) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 16 || in.getInt() != MAGIC || in.getInt() != VERSION
+                    || in.getInt() != CountryResolver.aliasFingerprint() || in.getInt() != sources.length) {
+                return null;
+            }
+            for (Path source : sources) {
+                if (in.getLong() != Files.size(source) || in.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+                    return null;
+                }
+            }
+            int length = in.getInt();
+            long checksum = in.getInt() & 0xFFFFFFFFL;
+            if (length != in.remaining()) {
+                return null;
+            }
+            ByteBuffer payload = in.slice();
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+            return readPayload(payload);
+        } catch (IOException | RuntimeException e) {
+            // A truncated or foreign file is treated like a stale one and rebuilt
+            return null;
+        }
+    }
+
+    static void write(Path file, Path[] sources, Graph graph, CapitalDistances distances,
+                      Map<String, String> countryCodes, long[] skipped) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+        payload.writeInt(countryCodes.size());
+        for (Map.Entry<String, String> entry : countryCodes.entrySet()) {
+            writeString(payload, entry.getKey());
+            writeString(payload, entry.getValue());
+        }
+
+        int n = graph.size();
+        payload.writeInt(n);
+        payload.writeInt(graph.edgeCount());
+        for (int u = 0; u < n; u++) {
+            writeString(payload, graph.name(u));
+        }
+        for (int u = 0; u <= n; u++) {
+            payload.writeInt(u < n ? graph.firstEdge(u) : graph.edgeCount());
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            payload.writeInt(graph.target(e));
+            payload.writeInt(graph.weight(e));
+        }
+
+        int codes = distances.size();
+        payload.writeInt(codes);
+        for (int i = 0; i < codes; i++) {
+            writeString(payload, distances.code(i));
+        }
+        payload.writeBoolean(distances.isDense());
+        if (distances.isDense()) {
+            for (float km : distances.matrix()) {
+                payload.writeFloat(km);
+            }
+        } else {
+            payload.writeInt(distances.pairKeys().length);
+            for (long key : distances.pairKeys()) {
+                payload.writeLong(key);
+            }
+            for (float km : distances.pairKilometres()) {
+                payload.writeFloat(km);
+            }
+        }
+        for (long count : skipped) {
+            payload.writeLong(count);
+        }
+        payload.flush();
+
+        byte[] body = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        // Write next to the target and move into place, so a reader never sees a half-written file
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "snapshot", ".tmp");
+        try (OutputStream os = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(os)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(CountryResolver.aliasFingerprint());
+            out.writeInt(sources.length);
+            for (Path source : sources) {
+                out.writeLong(Files.size(source));
+                out.writeLong(Files.getLastModifiedTime(source).toMillis());
+            }
+            out.writeInt(body.length);
+            out.writeInt((int) crc.getValue());
+            out.write(body);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static GraphSnapshot readPayload(ByteBuffer in) {
+        int entries = in.getInt();
+        Map<String, String> countryCodes = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            String name = readString(in);
+            countryCodes.put(name, readString(in));
+        }
+
+        int n = in.getInt();
+        int edges = in.getInt();
+        String[] names = new String[n];
+        for (int u = 0; u < n; u++) {
+            names[u] = readString(in);
+        }
+        int[] offsets = new int[n + 1];
+        in.asIntBuffer().get(offsets);
+        in.position(in.position() + 4 * offsets.length);
+        int[] targets = new int[edges];
+        int[] weights = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            targets[e] = in.getInt();
+            weights[e] = in.getInt();
+        }
+
+        int codeCount = in.getInt();
+        String[] codes = new String[codeCount];
+        for (int i = 0; i < codeCount; i++) {
+            codes[i] = readString(in);
+        }
+        CapitalDistances distances;
+        if (in.get() != 0) {
+            float[] matrix = new float[codeCount * codeCount];
+            in.asFloatBuffer().get(matrix);
+            in.position(in.position() + 4 * matrix.length);
+            distances = new CapitalDistances(codes, matrix);
+        } else {
+            long[] keys = new long[in.getInt()];
+            float[] kilometres = new float[keys.length];
+            in.asLongBuffer().get(keys);
+            in.position(in.position() + 8 * keys.length);
+            in.asFloatBuffer().get(kilometres);
+            in.position(in.position() + 4 * kilometres.length);
+            distances = new CapitalDistances(codes, keys, kilometres);
+        }
+
+        long[] skipped = {in.getLong(), in.getLong(), in.getLong()};
+        return new GraphSnapshot(Graph.of(names, offsets, targets, weights), distances, countryCodes, skipped);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,384 +1,802 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-public class IRoadTrip {
+public class IRoadTrip implements AutoCloseable {
 
-    private Map<String, Set<String>> countryBorders;
-    private Map<String, Map<String, Double>> countryDistances;
-
-    private Map<String, Map<String, Integer>> countryGraph;
+    // Everything derived from the data files, swapped whole on reload; each query reads it once
+    private final AtomicReference<RoadNetwork> network = new AtomicReference<>();
+    private final ThreadLocal<SearchScratch> searchScratch =
+            ThreadLocal.withInitial(() -> new SearchScratch(network.get().graph.size()));
     private Set<String> visited;
 
-    private Map<String, String> countryEndDates;
+    private Map<String, String> options;
+    private final Path[] sources;
+
+    // Settings that outlive a reload and are applied to each new network
+    private String strategy;
+    private long treeCacheBytes;
+    private Path routeTableFile;
+    private volatile LocalDate asOf;
+
+    private final RoadTripMetrics metrics = new RoadTripMetrics();
+    private volatile DataWatcher dataWatcher;
+    private volatile ScheduledExecutorService metricsDumper;
+
+    private static final String SNAPSHOT_FILE = "iroadtrip.snapshot";
+
+    // Command-line options after the three data files: flags stand alone, the rest take one value
+    private static final Set<String> FLAG_OPTIONS = Set.of("rebuild", "no-snapshot", "watch");
+    private static final Set<String> VALUE_OPTIONS = Set.of("strategy", "tree-cache-mb", "as-of", "batch", "format",
+            "threads", "serve", "max-concurrent", "route-table", "build-route-table", "verify-route-table",
+            "metrics-interval");
+    private static final Set<String> COUNT_OPTIONS = Set.of("threads", "max-concurrent", "serve", "tree-cache-mb",
+            "metrics-interval");
 
+    // A border entry ends with its length, e.g. "Pakistan 2,670 km"
+    private static final Pattern BORDER_LENGTH = Pattern.compile("\\s+[0-9][0-9,.]*\\s*km\\s*$");
+
+    // ParseException stays declared for existing callers; bad data files now end the process instead
     public IRoadTrip(String[] args) throws ParseException {
-        if (args.length != 3) {
-            System.err.println("Invalid number of arguments. Usage: IRoadTrip borders.txt capdist.csv state_name.tsv");
+        options = parseOptions(args);
+        if (options == null) {
+            System.err.println((args.length < 3 ? "Invalid number of arguments. " : "")
+                    + "Usage: IRoadTrip borders.txt capdist.csv state_name.tsv"
+                    + " [--strategy dijkstra|astar|bidijkstra|biastar|ch] [--rebuild | --no-snapshot]"
+                    + " [--tree-cache-mb n]"
+                    + " [--as-of yyyy-MM-dd] [--watch]"
+                    + " [--batch file|- [--format tsv|json] [--threads n]]"
+                    + " [--serve port [--max-concurrent n]]"
+                    + " [--route-table file | --build-route-table file | --verify-route-table file]"
+                    + " [--metrics-interval seconds]");
             System.exit(1);
         }
 
+        sources = new Path[] {Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2])};
+        strategy = options.getOrDefault("strategy", "dijkstra");
+        if (options.containsKey("tree-cache-mb")) {
+            treeCacheBytes = Long.parseLong(options.get("tree-cache-mb")) << 20;
+        }
+        if (options.containsKey("route-table")) {
+            routeTableFile = Paths.get(options.get("route-table"));
+        }
+        Map<String, Long> phases = new LinkedHashMap<>();
+        long[] skipped = new long[3];
+        RoadNetwork loaded = null;
         try {
-            // Read borders.txt
-            countryBorders = readBorders(args[0]);
-
-            // Read capdist.csv
-            countryDistances = readDistances(args[1]);
-
-            // Read state_name.tsv
-            countryEndDates = readStateName(args[2]);
-
+            loaded = loadNetwork(1, options.containsKey("rebuild"), phases, skipped);
         } catch (IOException e) {
             System.err.println("Error reading files: " + e.getMessage());
             System.exit(1);
         }
-        countryGraph = createGraph();
+        if (routeTableFile != null) {
+            long lap = System.nanoTime();
+            try {
+                loaded = loaded.withRouteTable(RouteTable.open(routeTableFile, loaded.graph));
+            } catch (IOException e) {
+                System.err.println("Cannot use route table: " + e.getMessage());
+                System.exit(1);
+            }
+            lap(phases, "route table", lap);
+        }
+        network.set(loaded);
+        metrics.loaded(phases, skipped);
+        if (options.containsKey("as-of")) {
+            try {
+                setAsOf(LocalDate.ofEpochDay(StateIntervals.parseDate(options.get("as-of"))));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid --as-of: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        metrics.register();
+        if (options.containsKey("metrics-interval")) {
+            startMetricsDump(Long.parseLong(options.get("metrics-interval")));
+        }
+        if (options.containsKey("watch")) {
+            try {
+                watchDataFiles();
+            } catch (IOException e) {
+                System.err.println("Cannot watch data files: " + e.getMessage());
+                System.exit(1);
+            }
+        }
     }
 
-    private Map<String, Map<String, Integer>> createGraph() {
-        Map<String, Map<String, Integer>> graph = new HashMap<>();
-    
+    // Builds a network from the data files, or from the snapshot next to borders.txt if it still
+    // matches them, with the current strategy and tree cache; --no-snapshot neither reads nor writes
+    // the snapshot. Nothing is published; phase timings and skipped-border counts are written to
+    // phases and skipped for the caller to keep or discard.
+    private RoadNetwork loadNetwork(long version, boolean rebuild, Map<String, Long> phases, long[] skipped)
+            throws IOException {
+        long lap = System.nanoTime();
+        Path snapshotFile = sources[0].toAbsolutePath().resolveSibling(SNAPSHOT_FILE);
+        boolean keepSnapshot = !options.containsKey("no-snapshot");
+        GraphSnapshot snapshot = rebuild || !keepSnapshot ? null : GraphSnapshot.load(snapshotFile, sources);
+        lap = lap(phases, "snapshot load", lap);
+
+        Graph graph;
+        CapitalDistances distances;
+        Map<String, String> countryCodes;
+        CountryResolver resolver;
+        if (snapshot != null) {
+            distances = snapshot.distances();
+            countryCodes = snapshot.countryCodes();
+            resolver = new CountryResolver(countryCodes);
+            graph = snapshot.graph();
+            System.arraycopy(snapshot.skipped(), 0, skipped, 0, skipped.length);
+            lap = lap(phases, "aliases", lap);
+        } else {
+            Map<String, Set<String>> borders = readBorders(sources[0].toString());
+            lap = lap(phases, "borders.txt", lap);
+            distances = CapitalDistances.load(sources[1].toString());
+            lap = lap(phases, "capdist.csv", lap);
+            try {
+                countryCodes = readStateName(sources[2].toString());
+            } catch (ParseException e) {
+                throw new IOException(sources[2] + ": " + e.getMessage(), e);
+            }
+            lap = lap(phases, "state_name.tsv", lap);
+            resolver = new CountryResolver(countryCodes);
+            lap = lap(phases, "aliases", lap);
+            graph = createGraph(borders, distances, countryCodes, resolver, skipped);
+            lap = lap(phases, "graph", lap);
+
+            if (keepSnapshot) {
+                try {
+                    GraphSnapshot.write(snapshotFile, sources, graph, distances, countryCodes, skipped);
+                } catch (IOException e) {
+                    // The snapshot only speeds up the next start, so failing to write it is not fatal
+                    System.err.println("Could not write graph snapshot: " + e.getMessage());
+                }
+                lap = lap(phases, "snapshot write", lap);
+            }
+        }
+        for (int u = 0; u < graph.size(); u++) {
+            resolver.addName(graph.name(u));
+        }
+        lap = lap(phases, "aliases", lap);
+        LowerBounds bounds = createLowerBounds(graph, distances, resolver);
+        lap = lap(phases, "lower bounds", lap);
+        RoadNetwork loaded = new RoadNetwork(version, graph, distances, countryCodes, resolver, bounds,
+                sources[2].toString(), strategy);
+        lap(phases, "strategy " + strategy, lap);
+        return treeCacheBytes > 0 ? loaded.withTreeCache(treeCacheBytes) : loaded;
+    }
+
+    // Re-reads the three data files and swaps the new network in if it looks sound: it must have
+    // borders and at least half the countries of the current one, since a file caught halfway
+    // through being rewritten usually reads as a much smaller map. Queries already running finish
+    // on the network they started with. Returns true if the new network was published.
+    public synchronized boolean reload() {
+        RoadNetwork current = network.get();
+        long started = System.nanoTime();
+        Map<String, Long> phases = new LinkedHashMap<>();
+        long[] skipped = new long[3];
+        RoadNetwork loaded;
+        try {
+            loaded = loadNetwork(current.version + 1, options.containsKey("rebuild"), phases, skipped);
+        } catch (IOException | RuntimeException e) {
+            metrics.reloadRejected();
+            System.err.println("Reload failed, keeping version " + current.version + ": " + e.getMessage());
+            return false;
+        }
+        String problem = loaded.graph.edgeCount() == 0 ? "no borders"
+                : loaded.graph.size() < current.graph.size() / 2
+                ? loaded.graph.size() + " countries, down from " + current.graph.size() : null;
+        if (problem != null) {
+            metrics.reloadRejected();
+            System.err.println("Reload rejected, keeping version " + current.version + ": " + problem);
+            return false;
+        }
+        if (routeTableFile != null) {
+            try {
+                loaded = loaded.withRouteTable(RouteTable.open(routeTableFile, loaded.graph));
+            } catch (IOException e) {
+                // A table built for the old graph would answer wrongly, so the new one searches until rebuilt
+                System.err.println("Dropping route table after reload: " + e.getMessage());
+            }
+        }
+        network.set(loaded);
+        metrics.loaded(phases, skipped);
+        metrics.reloaded(loaded.version);
+        System.err.printf("Reloaded data files as version %d: %d countries, %d borders in %.1f ms%n",
+                loaded.version, loaded.graph.size(), loaded.graph.edgeCount(), (System.nanoTime() - started) / 1e6);
+        return true;
+    }
+
+    // Reloads the data files from a daemon thread whenever one of them changes on disk
+    public synchronized void watchDataFiles() throws IOException {
+        if (dataWatcher == null) {
+            dataWatcher = new DataWatcher(sources, this::reload);
+            dataWatcher.start();
+        }
+    }
+
+    // Unregisters the metrics MBean and stops watching the data files and dumping metrics. Queries still
+    // work afterwards; close() is for embedders that create several instances in one JVM.
+    @Override
+    public synchronized void close() {
+        metrics.unregister();
+        if (metricsDumper != null) {
+            metricsDumper.shutdownNow();
+            metricsDumper = null;
+        }
+        if (dataWatcher != null) {
+            try {
+                dataWatcher.close();
+            } catch (IOException e) {
+                System.err.println("Could not stop watching data files: " + e.getMessage());
+            }
+            dataWatcher = null;
+        }
+    }
+
+    // Version of the data files being served: 1 at start, one more for each accepted reload
+    public long getDataVersion() {
+        return network.get().version;
+    }
+
+    // This thread's scratch, replaced if a reload grew the graph past it
+    private SearchScratch scratch(Graph graph) {
+        SearchScratch scratch = searchScratch.get();
+        if (scratch.capacity() < graph.size()) {
+            scratch = new SearchScratch(graph.size());
+            searchScratch.set(scratch);
+        }
+        return scratch;
+    }
+
+    // Adds the time since started to the load phase and returns the current time for the next one
+    private static long lap(Map<String, Long> phases, String phase, long started) {
+        long now = System.nanoTime();
+        phases.merge(phase, now - started, Long::sum);
+        return now;
+    }
+
+    // Load timings, skipped borders, query latency percentiles and search counters as text;
+    // the same figures are published over JMX as iroadtrip:type=Metrics
+    public String getMetrics() {
+        return metrics.dump();
+    }
+
+    // Prints getMetrics() to stderr every period seconds from a daemon thread
+    private void startMetricsDump(long period) {
+        metricsDumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsDumper.scheduleAtFixedRate(() -> System.err.print(metrics.dump()), period, period, TimeUnit.SECONDS);
+    }
+
+    // Answers findPath from a precomputed all-pairs table written by buildRouteTable
+    public synchronized void useRouteTable(Path file) throws IOException {
+        RoadNetwork current = network.get();
+        network.set(current.withRouteTable(RouteTable.open(file, current.graph)));
+        routeTableFile = file;
+    }
+
+    // Precomputes every route in parallel and writes the table to file
+    public void buildRouteTable(Path file) throws IOException {
+        RouteTable.build(network.get().graph, file);
+    }
+
+    // Checks every pair in the table against an on-line Dijkstra search; returns the mismatch count
+    public int verifyRouteTable(Path file) throws IOException {
+        Graph graph = network.get().graph;
+        return RouteTable.open(file, graph).verify(graph);
+    }
+
+    // Answers findPath from cached shortest-path trees, bounded to maxBytes; the strategy is then unused
+    public synchronized void enableTreeCache(long maxBytes) {
+        network.set(network.get().withTreeCache(maxBytes));
+        treeCacheBytes = maxBytes;
+    }
+
+    // Hit/miss statistics of the shortest-path tree cache, or null if it is disabled
+    public String getTreeCacheStats() {
+        ShortestPathTreeCache treeCache = network.get().treeCache;
+        return treeCache == null ? null : treeCache.toString();
+    }
+
+    // Parses the "--name [value]" flags that follow the three data files, or returns null if malformed
+    private static Map<String, String> parseOptions(String[] args) {
+        if (args.length < 3) {
+            return null;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                System.err.println("Unexpected argument " + args[i]);
+                return null;
+            }
+            String name = args[i].substring(2);
+            if (FLAG_OPTIONS.contains(name)) {
+                options.put(name, "true");
+            } else if (VALUE_OPTIONS.contains(name) && i + 1 < args.length
+                    && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                // A misspelt option would otherwise be ignored and the run would quietly use the default
+                System.err.println(VALUE_OPTIONS.contains(name) ? "Missing value for " + args[i]
+                        : "Unknown option " + args[i]);
+                return null;
+            }
+        }
+        // Checked here so a bad value gets the usage line instead of escaping as an exception later
+        for (String name : COUNT_OPTIONS) {
+            if (options.containsKey(name) && !isPositiveInt(options.get(name))) {
+                System.err.println("--" + name + " needs a positive whole number, not " + options.get(name));
+                return null;
+            }
+        }
+        if (options.containsKey("strategy") && !PathFinder.STRATEGIES.contains(options.get("strategy"))) {
+            System.err.println("--strategy must be dijkstra, astar, bidijkstra, biastar or ch, not "
+                    + options.get("strategy"));
+            return null;
+        }
+        if (options.containsKey("format") && !options.get("format").matches("tsv|json")) {
+            System.err.println("--format must be tsv or json, not " + options.get("format"));
+            return null;
+        }
+        return options;
+    }
+
+    private static boolean isPositiveInt(String value) {
+        try {
+            return Integer.parseInt(value) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Selects the search used by findPath: dijkstra, astar, bidijkstra, biastar or ch (contraction hierarchies);
+    // any other name throws IllegalArgumentException and leaves the current strategy in place
+    public synchronized void setStrategy(String strategy) {
+        if (!PathFinder.STRATEGIES.contains(strategy)) {
+            throw new IllegalArgumentException("Unknown path-finding strategy: " + strategy);
+        }
+        network.set(network.get().withStrategy(strategy));
+        this.strategy = strategy;
+    }
+
+    // Number of nodes settled by the last findPath call on this thread
+    public int getLastSettledCount() {
+        return searchScratch.get().settled;
+    }
+
+    // Skipped borders are counted into skipped: without a state code, to an unknown country, without a distance
+    private static Graph createGraph(Map<String, Set<String>> countryBorders, CapitalDistances countryDistances,
+                                     Map<String, String> countryEndDates, CountryResolver countryResolver,
+                                     long[] skipped) {
         Set<String> validCountries = new HashSet<>(countryEndDates.keySet());
         validCountries.retainAll(countryBorders.keySet());
     
-        for (String country : validCountries) {
-            graph.put(country, new HashMap<>());
+        // Intern every country once; countries without end-date info stay single-vertex entries
+        Graph.Builder builder = new Graph.Builder(countryBorders.size());
+        for (String country : countryBorders.keySet()) {
+            builder.addCountry(country);
         }
     
+        // Borders that cannot be weighted are dropped, and counted for the metrics
+        long withoutStateCode = 0;
+        long toUnknownCountry = 0;
+        long withoutDistance = 0;
         for (Map.Entry<String, Set<String>> entry : countryBorders.entrySet()) {
             String country = entry.getKey();
-            Map<String, Integer> edges = graph.get(country);
-    
-            if (edges == null) {
-                //System.out.println("DEBUG: No entry for country " + country + " in graph.");
-                graph.put(country, new HashMap<>());  // Add a single-vertex entry
+            if (!validCountries.contains(country)) {
+                withoutStateCode += entry.getValue().size();
                 continue;
-                    }
+            }
+            int from = builder.id(country);
+            int countryIDA = countryDistances.id(countryResolver.code(country));
     
             for (String neighbor : entry.getValue()) {
-                String countryIDA = getIDA(country);
-                String neighborIDA = getIDA(neighbor);
-    
-                if (countryIDA != null && neighborIDA != null &&
-                        countryDistances.containsKey(countryIDA) &&
-                        countryDistances.get(countryIDA).containsKey(neighborIDA)) {
-                    double distance = countryDistances.get(countryIDA).get(neighborIDA);
-                    edges.put(neighbor, (int) Math.round(distance));
+                // A neighbor that is not a vertex itself has no borders, so no route can pass through it
+                int to = builder.id(neighbor);
+                if (to < 0) {
+                    toUnknownCountry++;
+                    continue;
+                }
+                int neighborIDA = countryDistances.id(countryResolver.code(neighbor));
+    
+                float distance = countryIDA < 0 || neighborIDA < 0
+                        ? Float.NaN : countryDistances.kilometres(countryIDA, neighborIDA);
+                if (!Float.isNaN(distance)) {
+                    builder.addBorder(from, to, Math.round(distance));
                 } else {
-                   // System.out.println("DEBUG: Missing distance information for " + country + " to " + neighbor +
-                  //          ". Skipping this edge.");
+                    withoutDistance++;
                 }
             }
         }
+        skipped[0] = withoutStateCode;
+        skipped[1] = toUnknownCountry;
+        skipped[2] = withoutDistance;
     
-        return graph;
+        return builder.build();
     }
     
     
-    private String getIDA(String countryFullName) {
-        for (Map.Entry<String, String> entry : countryEndDates.entrySet()) {
-            // System.out.println("Checking: " + entry.getKey());  // Use getKey() to get the full name
-            // System.out.println("Input: " + countryFullName);
-    
-            if (entry.getKey().equalsIgnoreCase(countryFullName)) {
-               // System.out.println("Test");
-                return entry.getValue();
-            }
+    private static LowerBounds createLowerBounds(Graph countryGraph, CapitalDistances countryDistances,
+                                                 CountryResolver countryResolver) {
+        int n = countryGraph.size();
+        LowerBounds bounds = new LowerBounds(n, countryGraph.shortestBorder());
+        if (bounds.isEmpty()) {
+            return bounds;
+        }
+        int[] codes = new int[n];
+        for (int u = 0; u < n; u++) {
+            codes[u] = countryDistances.id(countryResolver.code(countryGraph.name(u)));
         }
     
-        // Print the country for which no match is found
-      //  System.out.println("No match found for: " + countryFullName);
-    
-        return null; // Handle not found
-    }
-    
-    
-    private String getFullName(String countryCode) {
-        for (Map.Entry<String, String> entry : countryEndDates.entrySet()) {
-            if (entry.getValue().equalsIgnoreCase(countryCode)) {
-                return entry.getKey();
+        // Countries without a capital distance keep a bound of 0, which is always admissible
+        for (int u = 0; u < n; u++) {
+            for (int v = 0; codes[u] >= 0 && v < n; v++) {
+                float km = codes[v] < 0 ? Float.NaN : countryDistances.kilometres(codes[u], codes[v]);
+                if (!Float.isNaN(km)) {
+                    bounds.set(u, v, km);
+                }
             }
         }
-        return null; // Handle not found
+        return bounds;
     }
     
     
     public static Map<String, Set<String>> readBorders(String filename) throws IOException {
-        // Create a map for replacements
-        Map<String, String> replacementMap = new HashMap<>();
-        replacementMap.put("US", "United States");
-        replacementMap.put("Macedonia", "North Macedonia");
-        replacementMap.put("Czech Republic", "Czechia");
-        replacementMap.put("The Gambia", "Gambia, The");
-        replacementMap.put("UK", "United Kingdom");
-        replacementMap.put("UAE", "United Arab Emirates");
-        replacementMap.put("Turkey (Turkiye)", "Turkey");
-        replacementMap.put("Burkina", "Burkina Faso");
-        replacementMap.put("Korea, North", "North Korea");
-        replacementMap.put("Korea, South", "South Korea");
-        replacementMap.put("Morocco (Ceuta)", "Morocco");
-        replacementMap.put("Russia (Kaliningrad)", "Russia");
-        replacementMap.put("Russia (Kaliningrad Oblast)", "Russia");
-        replacementMap.put("Spain (Ceuta)", "Spain");
-        replacementMap.put("Spain (Ceuta)", "Spain");
-
-    
         Map<String, Set<String>> borders = new TreeMap<>();
+        // One matcher for the whole file strips the trailing border length, e.g. " 2,670 km"
+        Matcher borderLength = BORDER_LENGTH.matcher("");
     
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split("=");
-                if (parts.length == 2) {
-                    String country = parts[0].trim();
-                    if (replacementMap.containsKey(country)) {
-                            country = replacementMap.get(country);
-                        }
-                    String[] neighbors = parts[1].split(";");
-                    Set<String> borderingCountries = new TreeSet<>();  // Using TreeSet for automatic sorting
-                    for (String neighbor : neighbors) {
-                        // Check if replacement exists in the map, otherwise use the original neighbor
-                        String result = neighbor.replaceAll("[0-9,]|\\bkm\\b", "");
-            
-                        // Remove spaces from the beginning and end of the result
-                        result = result.trim();
-                    
-                        // Add replacements from the map
-                       // System.out.println(result);
-                       // System.out.println(replacementMap.containsKey(result));
-                        if (replacementMap.containsKey(result)) {
-                            result = replacementMap.get(result);
-                            //System.out.println(result);
-                        }
-                        
-                        // Remove the last 2 letters, numbers, and commas, and trim spaces
-                        
-                        borderingCountries.add(result);
+                int equals = line.indexOf('=');
+                if (equals < 0 || line.indexOf('=', equals + 1) >= 0) {
+                    continue;
+                }
+                String country = CountryResolver.canonicalName(line.substring(0, equals).trim());
+                Set<String> borderingCountries = new TreeSet<>();  // Using TreeSet for automatic sorting
+    
+                int from = equals + 1;
+                while (from <= line.length()) {
+                    int to = line.indexOf(';', from);
+                    if (to < 0) {
+                        to = line.length();
+                    }
+                    borderLength.reset(line).region(from, to);
+                    int nameEnd = borderLength.find() ? borderLength.start() : to;
+                    String neighbor = line.substring(from, nameEnd).trim();
+                    if (!neighbor.isEmpty()) {
+                        borderingCountries.add(CountryResolver.canonicalName(neighbor));
                     }
-                    
-                    borders.put(country, borderingCountries);
+                    from = to + 1;
                 }
+    
+                borders.put(country, borderingCountries);
             }
-            
-        }
-    
-        // Debugging output
-        // System.out.println("Read borders:");
-        // for (Map.Entry<String, Set<String>> entry : borders.entrySet()) {
-        //     String country = entry.getKey();
-        //     Set<String> borderingCountries = entry.getValue();
-        //     System.out.print(country + ": ");
-        //     StringJoiner joiner = new StringJoiner(",");
-        //     for (String neighbor : borderingCountries) {
-        //         joiner.add(neighbor);
-        //     }
-        //     System.out.println(joiner.toString());
-        // }
+        }
     
         return borders;
     }
     
 
 
-    private Map<String, Map<String, Double>> readDistances(String filename) throws IOException {
-        Map<String, Map<String, Double>> distances = new HashMap<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            // Skip the header line
-            br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 6) {
-                    String country1 = parts[1].trim();
-                    String country2 = parts[3].trim();
-                    double kmdist = Double.parseDouble(parts[4].trim());
-                    double midist = Double.parseDouble(parts[5].trim());
-    
-                    // Add distances for both directions (country1 to country2 and vice versa)
-                    distances.computeIfAbsent(country1, k -> new HashMap<>()).put(country2, kmdist);
-                    distances.computeIfAbsent(country2, k -> new HashMap<>()).put(country1, kmdist);
-    
-                    // Print for debugging
-                  //  System.out.println("Added distance between " + country1 + " and " + country2 + ": " + kmdist);
-                }
-            }
-        }
-        // Print for debugging
-        //  System.out.println("Read distances:");
-        //  for (Map.Entry<String, Map<String, Double>> entry : distances.entrySet()) {
-        //      String country = entry.getKey();
-        //      Map<String, Double> neighborDistances = entry.getValue();
-        //      System.out.print(country + " -> ");
-        //      for (Map.Entry<String, Double> neighbor : neighborDistances.entrySet()) {
-        //          System.out.print(neighbor.getKey() + "(" + neighbor.getValue() + " km) ");
-        //      }
-        //      System.out.println();
-        //  }
-        return distances;
-    }
-    
-
+    // Canonical country names to state codes for the states that still exist at the end of the file.
+    // Malformed dates are reported as an IOException naming the line; ParseException stays declared
+    // so callers written against the original signature still compile.
     public static Map<String, String> readStateName(String filename) throws IOException, ParseException {
-        Map<String, String> countries = new HashMap<>();
-        Map<String, String> nameMapping = new HashMap<>();  // Add this line
-    
-        // Manually fill the nameMapping map
-        nameMapping.put("Zimbabwe (Rhodesia)", "Zimbabwe");
-        nameMapping.put("Tanzania/Tanganyika", "Tanzania");
-        nameMapping.put("Congo, Democratic Republic of (Zaire)", "Congo, Democratic Republic of the");
-        nameMapping.put("Yemen (Arab Republic of Yemen)", "Yemen");
-        nameMapping.put("Vietnam, Democratic Republic of", "Vietnam");
-        nameMapping.put("United States of America", "United States");
-        nameMapping.put("Kyrgyz Republic", "Kyrgyzstan");
-        nameMapping.put("Cambodia (Kampuchea)", "Cambodia");
-        nameMapping.put("Myanmar (Burma)", "Burma");
-        nameMapping.put("German Federal Republic", "Germany");
-        nameMapping.put("Italy/Sardinia", "Italy");
-        nameMapping.put("Russia (Soviet Union)", "Russia");
-        nameMapping.put("Belarus (Byelorussia)", "Belarus");
-        nameMapping.put("Tanzania/Tanganyika", "Tanzania");
-        nameMapping.put("Iran (Persia)", "Iran");
-        nameMapping.put("Turkey (Ottoman Empire)", "Turkey");
-        nameMapping.put("Burkina Faso (Upper Volta)", "Burkina");
-        nameMapping.put("East Timor", "Timor-Leste");
-        nameMapping.put("Surinam", "Suriname");
-        nameMapping.put("Sri Lanka (Ceylon)", "Sri");
-        nameMapping.put("Macedonia (Former Yugoslav Republic of)", "North Macedonia");
-        nameMapping.put("Czech Republic", "Czechia");
-        nameMapping.put("Bahamas, The", "Bahamas");
-        nameMapping.put("Bosnia and Herzegovina", "Bosnia-Herzegovina");
-        nameMapping.put("Congo, Democratic Republic of (Zaire)", "Congo, Democratic Republic of");
-        nameMapping.put("Congo", "Congo, Republic of the");
-        nameMapping.put("Swaziland", "Eswatini");
-        nameMapping.put("Denmark", "Denmark (Greenland)");
-        nameMapping.put("Korea, People's Republic of", "North Korea");
-        nameMapping.put("Korea, Republic of", "South Korea");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-        nameMapping.put("NO", "CAN");
-
-        // Add more mappings as needed
-    
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            // Print for debugging
-          //  System.out.println("Read state names:");
-            br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length == 5) {
-                    // System.out.println("test");
-    
-                    String countryFullName = parts[2].trim();
-    
-                    String countryAbbreviation = parts[1].trim();
-                    Date endDate;
-                    // System.out.println("test2");
-    
-                    try {
-                        endDate = dateFormat.parse(parts[4].trim());
-                    } catch (ParseException e) {
-                        e.printStackTrace(); // Print the stack trace for debugging
-                        throw new RuntimeException("Error parsing date", e);
-                    }
-    
-                    // Check if the country name needs to be updated
-                    if (nameMapping.containsKey(countryFullName)) {
-                        countryFullName = nameMapping.get(countryFullName);
-                    }
-    
-                    // Print for debugging
-                    //System.out.println("Read entry: " + countryFullName + " -> " + countryAbbreviation);
-    
-                    // Only store countries with the last date of 2020-12-31
-                    if (endDate.equals(dateFormat.parse("2020-12-31"))) {
-                        countries.put(countryFullName, countryAbbreviation);
-                    }
-                }
-            }
-        }
-        return countries;
+        StateIntervals intervals = StateIntervals.load(filename);
+        return intervals.codesOn(intervals.lastDay());
     }
     
     public int getDistance(String country1, String country2) {
-        if (countryDistances.containsKey(country1) && countryDistances.get(country1).containsKey(country2)) {
-            return (int) Math.round(countryDistances.get(country1).get(country2));
-        } else {
-            return -1;
-        }
+        float distance = network.get().distances.kilometres(country1, country2);
+        return Float.isNaN(distance) ? -1 : Math.round(distance);
     }
     public PathInfo findPath(String startCountry, String endCountry) {
-        if (!countryGraph.containsKey(startCountry) || !countryGraph.containsKey(endCountry)) {
+        if (asOf != null) {
+            return findPath(startCountry, endCountry, asOf);
+        }
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(startCountry);
+        int end = countryGraph.id(endCountry);
+        if (start < 0 || end < 0) {
             System.out.println("Invalid input countries.");
             return new PathInfo(new ArrayList<>(), new ArrayList<>());
         }
     
-        // Dijkstra's algorithm
-        Map<String, Integer> distance = new HashMap<>();
-        Map<String, String> previous = new HashMap<>();
-        PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(distance::get));
-    
-        distance.put(startCountry, 0);
-        queue.add(startCountry);
-    
-        while (!queue.isEmpty()) {
-            String currentCountry = queue.poll();
-           // System.out.println("Processing: " + currentCountry + ", Distance: " + distance.get(currentCountry));
-    
-            if (currentCountry.equals(endCountry)) {
-              //  System.out.println("Reached the destination: " + endCountry);
-                break; // Reached the destination
-            }
-    
-            // Null check added here
-            Map<String, Integer> neighbors = countryGraph.get(currentCountry);
-            if (neighbors == null) {
-               // System.out.println("No neighbors for: " + currentCountry);
-                continue; // Skip if neighbors are null
+        long started = System.nanoTime();
+        SearchScratch scratch = scratch(countryGraph);
+        // Table and cache hits do not search, so they must not report the previous query's counts
+        scratch.settled = 0;
+        scratch.relaxed = 0;
+        int distance;
+        if (!countryGraph.components().connected(start, end)) {
+            // Different components never share a border chain, so there is nothing to search
+            distance = -1;
+        } else if (net.routeTable != null) {
+            distance = net.routeTable.route(start, end, scratch);
+        } else if (net.treeCache != null) {
+            distance = net.treeCache.route(start, end, scratch);
+        } else {
+            distance = net.pathFinder.search(start, end, scratch);
+        }
+        metrics.route(System.nanoTime() - started, scratch, distance >= 0);
+        if (distance < 0) {
+            return unreachable(startCountry);
+        }
+        return toPathInfo(countryGraph, scratch);
+    }
+
+    // Routes over the countries that existed on the given day, as recorded in state_name.tsv.
+    // A country that did not exist then, at either end or along the way, cannot be part of the route.
+    public PathInfo findPath(String startCountry, String endCountry, LocalDate date) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(startCountry);
+        int end = countryGraph.id(endCountry);
+        if (start < 0 || end < 0) {
+            System.out.println("Invalid input countries.");
+            return new PathInfo(new ArrayList<>(), new ArrayList<>());
+        }
+        return findPath(net, start, end, new RouteMask(countryGraph, net.stateEpochs().activeOn(date.toEpochDay())));
+    }
+
+    // Shortest route that enters none of avoidCountries and crosses none of avoidBorders (pairs of
+    // neighbouring countries, closed in both directions). The graph itself is not modified. An unknown
+    // country, or a pair that shares no border, throws IllegalArgumentException.
+    public PathInfo findPath(String startCountry, String endCountry,
+                             Collection<String> avoidCountries, Collection<List<String>> avoidBorders) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(startCountry);
+        int end = countryGraph.id(endCountry);
+        if (start < 0 || end < 0) {
+            System.out.println("Invalid input countries.");
+            return new PathInfo(new ArrayList<>(), new ArrayList<>());
+        }
+        return findPath(net, start, end, routeMask(net, avoidCountries, avoidBorders));
+    }
+
+    private PathInfo findPath(RoadNetwork net, int start, int end, RouteMask mask) {
+        Graph countryGraph = net.graph;
+        long started = System.nanoTime();
+        SearchScratch scratch = scratch(countryGraph);
+        scratch.settled = 0;
+        scratch.relaxed = 0;
+        int distance = -1;
+        // Precomputed tables and hierarchies only know the unrestricted map, so masked routes always search
+        if (mask.allowsNode(start) && mask.allowsNode(end) && countryGraph.components().connected(start, end)) {
+            distance = net.maskedSearch.search(start, end, scratch, mask);
+        }
+        metrics.route(System.nanoTime() - started, scratch, distance >= 0);
+        return distance < 0 ? unreachable(countryGraph.name(start)) : toPathInfo(countryGraph, scratch);
+    }
+
+    // Up to k loopless routes in ascending length, the first being a shortest route; empty if there is
+    // none. Among routes of equal length the first may differ from the one findPath returns.
+    public List<PathInfo> findPaths(String startCountry, String endCountry, int k) {
+        return findPaths(startCountry, endCountry, k, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public List<PathInfo> findPaths(String startCountry, String endCountry, int k,
+                                    Collection<String> avoidCountries, Collection<List<String>> avoidBorders) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(startCountry);
+        int end = countryGraph.id(endCountry);
+        if (start < 0 || end < 0) {
+            System.out.println("Invalid input countries.");
+            return new ArrayList<>();
+        }
+        long started = System.nanoTime();
+        SearchScratch scratch = scratch(countryGraph);
+        scratch.settled = 0;
+        scratch.relaxed = 0;
+        List<Route> routes = countryGraph.components().connected(start, end)
+                ? net.kShortestPaths.search(start, end, k, routeMask(net, avoidCountries, avoidBorders), scratch)
+                : Collections.emptyList();
+        metrics.alternatives(System.nanoTime() - started, scratch);
+        List<PathInfo> result = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            result.add(toPathInfo(countryGraph, route));
+        }
+        return result;
+    }
+
+    // Cheapest trip from startCountry through every country in stops, in whatever order is shortest,
+    // ending at endCountry, or after the last stop if endCountry is null. Returns the stitched
+    // border-by-border route, or only the start country if some stop cannot be reached.
+    public PathInfo planTrip(String startCountry, List<String> stops, String endCountry) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(startCountry);
+        int end = endCountry == null ? -1 : countryGraph.id(endCountry);
+        Set<Integer> waypoints = new LinkedHashSet<>();
+        for (String stop : stops) {
+            waypoints.add(countryGraph.id(stop));
+        }
+        if (start < 0 || (endCountry != null && end < 0) || waypoints.contains(-1)) {
+            System.out.println("Invalid input countries.");
+            return new PathInfo(new ArrayList<>(), new ArrayList<>());
+        }
+        // Passing through the start or the end again is free, so they are not waypoints
+        waypoints.remove(start);
+        waypoints.remove(end);
+
+        RouteMask mask = asOf == null ? null : routeMask(net, Collections.emptyList(), Collections.emptyList());
+        // Under --as-of a country that did not exist then is as unknown as a misspelt one
+        if (mask != null && (!mask.allowsNode(start) || (end >= 0 && !mask.allowsNode(end))
+                || waypoints.stream().anyMatch(stop -> !mask.allowsNode(stop)))) {
+            System.out.println("Invalid input countries.");
+            return new PathInfo(new ArrayList<>(), new ArrayList<>());
+        }
+
+        long started = System.nanoTime();
+        Route trip = net.tripPlanner.plan(start, waypoints.stream().mapToInt(Integer::intValue).toArray(), end,
+                mask, () -> scratch(countryGraph));
+        metrics.trip(System.nanoTime() - started);
+        return trip == null ? unreachable(startCountry) : toPathInfo(countryGraph, trip);
+    }
+
+    // Countries reachable from country by road within maxKm, nearest first and at most limit of them;
+    // the start itself is not listed. One search answers it, stopping at the budget or the limit.
+    public List<ReachableInfo> findReachable(String country, int maxKm, int limit) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        int start = countryGraph.id(country);
+        if (start < 0) {
+            System.out.println("Invalid input countries.");
+            return new ArrayList<>();
+        }
+        long started = System.nanoTime();
+        SearchScratch scratch = scratch(countryGraph);
+        List<ReachableInfo> result = reachable(net, start, maxKm, limit, reachableMask(net), scratch);
+        metrics.reachable(System.nanoTime() - started, scratch);
+        return result;
+    }
+
+    // Every country within maxKm by road, nearest first
+    public List<ReachableInfo> findReachable(String country, int maxKm) {
+        return findReachable(country, maxKm, Integer.MAX_VALUE);
+    }
+
+    // The k countries nearest by road
+    public List<ReachableInfo> findNearest(String country, int k) {
+        return findReachable(country, Integer.MAX_VALUE, k);
+    }
+
+    // findReachable from every country, one search per start spread over all cores; keyed by start country
+    // in alphabetical order
+    public Map<String, List<ReachableInfo>> findAllReachable(int maxKm, int limit) {
+        RoadNetwork net = network.get();
+        Graph countryGraph = net.graph;
+        RouteMask mask = reachableMask(net);
+        List<List<ReachableInfo>> results = IntStream.range(0, countryGraph.size()).parallel()
+                .mapToObj(u -> reachable(net, u, maxKm, limit, mask, scratch(countryGraph)))
+                .collect(Collectors.toList());
+        Map<String, List<ReachableInfo>> sweep = new TreeMap<>();
+        for (int u = 0; u < countryGraph.size(); u++) {
+            sweep.put(countryGraph.name(u), results.get(u));
+        }
+        return sweep;
+    }
+
+    // The --as-of day's map, or null for today's, which needs no mask
+    private RouteMask reachableMask(RoadNetwork net) {
+        return asOf == null ? null : routeMask(net, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private List<ReachableInfo> reachable(RoadNetwork net, int start, int maxKm, int limit, RouteMask mask,
+                                          SearchScratch scratch) {
+        if (maxKm < 0 || limit < 0) {
+            throw new IllegalArgumentException("the distance budget and the limit cannot be negative");
+        }
+        if (mask != null && !mask.allowsNode(start)) {
+            return new ArrayList<>();
+        }
+        int found = net.maskedSearch.searchWithin(start, maxKm, limit, scratch, mask);
+        int[] depth = scratch.depth();
+        List<ReachableInfo> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            int node = scratch.route[i];
+            result.add(new ReachableInfo(net.graph.name(node), scratch.distance(node), depth[node]));
+        }
+        return result;
+    }
+
+    // The query mask: today's map, or the --as-of day's, minus the avoided countries and borders
+    private RouteMask routeMask(RoadNetwork net, Collection<String> avoidCountries,
+                                Collection<List<String>> avoidBorders) {
+        Graph countryGraph = net.graph;
+        LocalDate date = asOf;
+        RouteMask mask = new RouteMask(countryGraph,
+                date == null ? null : net.stateEpochs().activeOn(date.toEpochDay()));
+        for (String country : avoidCountries) {
+            mask.banNode(requireId(countryGraph, country));
+        }
+        for (List<String> border : avoidBorders) {
+            if (border.size() != 2) {
+                throw new IllegalArgumentException("a border is a pair of countries: " + border);
             }
-    
-            for (Map.Entry<String, Integer> neighbor : neighbors.entrySet()) {
-                String nextCountry = neighbor.getKey();
-                int newDist = distance.get(currentCountry) + neighbor.getValue();
-               // System.out.println("Checking neighbor: " + nextCountry + ", Current Distance: " + distance.get(nextCountry));
-    
-                if (!distance.containsKey(nextCountry) || newDist < distance.get(nextCountry)) {
-                    // Update the distance to the neighboring country if the new distance is shorter
-                    distance.put(nextCountry, newDist);
-                    previous.put(nextCountry, currentCountry);
-                    queue.add(nextCountry);
-                   // System.out.println("Updated distance for: " + nextCountry + ", New Distance: " + newDist);
-                }
+            // Closing a border that does not exist would leave the route unchanged without saying why
+            if (!mask.banBorder(countryGraph, requireId(countryGraph, border.get(0)),
+                    requireId(countryGraph, border.get(1)))) {
+                throw new IllegalArgumentException(border.get(0) + " and " + border.get(1) + " share no border");
             }
         }
-    
-        // Reconstruct the path
-        List<String> path = new ArrayList<>();
-        List<Integer> distances = new ArrayList<>();
-        String current = endCountry;
-    
-        while (previous.containsKey(current)) {
-            path.add(0, current);
-            distances.add(0, countryGraph.get(previous.get(current)).get(current));
-            current = previous.get(current);
+        return mask;
+    }
+
+    private static int requireId(Graph countryGraph, String country) {
+        int id = countryGraph.id(country);
+        if (id < 0) {
+            throw new IllegalArgumentException("unknown country: " + country);
         }
+        return id;
+    }
+
+    // True if state_name.tsv lists the country as existing on the given day
+    public boolean existedOn(String country, LocalDate date) {
+        RoadNetwork net = network.get();
+        int id = net.graph.id(country);
+        return id >= 0 && StateEpochs.contains(net.stateEpochs().activeOn(date.toEpochDay()), id);
+    }
+
+    // Makes findPath(start, end) answer as of the given day; null restores today's map
+    public void setAsOf(LocalDate date) {
+        asOf = date;
+    }
+
+    // Unreachable: the path holds only the start country
+    private PathInfo unreachable(String startCountry) {
+        List<String> path = new ArrayList<>(1);
+        path.add(startCountry);
+        return new PathInfo(path, new ArrayList<>(0));
+    }
     
-        path.add(0, startCountry);
+    private PathInfo toPathInfo(Graph countryGraph, Route route) {
+        List<String> path = new ArrayList<>(route.nodes.length);
+        List<Integer> distances = new ArrayList<>(route.nodes.length - 1);
+        path.add(countryGraph.name(route.nodes[0]));
+        for (int i = 1; i < route.nodes.length; i++) {
+            path.add(countryGraph.name(route.nodes[i]));
+            distances.add(route.hops[i]);
+        }
+        return new PathInfo(path, distances);
+    }
+
+    private PathInfo toPathInfo(Graph countryGraph, SearchScratch scratch) {
+        int length = scratch.routeLength;
+        List<String> path = new ArrayList<>(length);
+        List<Integer> distances = new ArrayList<>(length - 1);
+        path.add(countryGraph.name(scratch.route[0]));
+        for (int i = 1; i < length; i++) {
+            path.add(countryGraph.name(scratch.route[i]));
+            distances.add(scratch.hops[i]);
+        }
         return new PathInfo(path, distances);
     }
     
@@ -392,10 +810,11 @@ public class IRoadTrip {
         
             while (true) {
                 System.out.print("Enter the name of the first country (type EXIT to quit): ");
-                country1 = scanner.nextLine();
-                if (isPresent(country1)) {
+                String input = scanner.nextLine();
+                country1 = resolveCountry(input);
+                if (country1 != null) {
                     break;
-                } else if (country1.equalsIgnoreCase("EXIT")) {
+                } else if (input.equalsIgnoreCase("EXIT")) {
                     System.exit(0);
                 } else {
                     System.out.println("Invalid country name. Please enter a valid country name.");
@@ -404,10 +823,11 @@ public class IRoadTrip {
         
             while (true) {
                 System.out.print("Enter the name of the second country (type EXIT to quit): ");
-                country2 = scanner.nextLine();
-                if (isPresent(country2)) {
+                String input = scanner.nextLine();
+                country2 = resolveCountry(input);
+                if (country2 != null) {
                     break;
-                } else if (country2.equalsIgnoreCase("EXIT")) {
+                } else if (input.equalsIgnoreCase("EXIT")) {
                     System.exit(0);
                 } else {
                     System.out.println("Invalid country name. Please enter a valid country name.");
@@ -417,8 +837,6 @@ public class IRoadTrip {
             PathInfo pathInfo = findPath(country1, country2);
         
             List<String> path = pathInfo.getPath();
-            
-        // System.out.println(path);
 
             if (path.size() < 2) {
                 System.out.println("No valid path found between " + country1 + " and " + country2 + ".");
@@ -434,8 +852,11 @@ public class IRoadTrip {
     }
     }
 
-    private boolean isPresent(String country) {
-        return countryGraph.containsKey(country);
+    // The graph's name for a country typed in any case, alias or state code, or null if unknown
+    String resolveCountry(String input) {
+        RoadNetwork net = network.get();
+        String country = net.resolver.resolve(input);
+        return country != null && net.graph.id(country) >= 0 ? country : null;
     }
     
 
@@ -458,28 +879,177 @@ public class IRoadTrip {
     }
     
     
-    public void printGraph() {
-        for (Map.Entry<String, Map<String, Integer>> entry : countryGraph.entrySet()) {
-            String country = entry.getKey();
-            Map<String, Integer> neighbors = entry.getValue();
+    // True if the two countries are in the same connected component; false also for unknown names.
+    // A false answer is exact; with one-way borders, true still needs a search to confirm.
+    public boolean mayBeReachable(String country1, String country2) {
+        Graph countryGraph = network.get().graph;
+        int a = countryGraph.id(country1);
+        int b = countryGraph.id(country2);
+        return a >= 0 && b >= 0 && countryGraph.components().connected(a, b);
+    }
+
+    // One entry per connected component, largest first
+    public List<ComponentInfo> getComponents() {
+        Graph countryGraph = network.get().graph;
+        ComponentIndex components = countryGraph.components();
+        List<List<String>> members = new ArrayList<>(components.count());
+        for (int c = 0; c < components.count(); c++) {
+            members.add(new ArrayList<>(components.size(c)));
+        }
+        for (int u = 0; u < countryGraph.size(); u++) {
+            members.get(components.componentOf(u)).add(countryGraph.name(u));
+        }
+        List<ComponentInfo> result = new ArrayList<>(components.count());
+        for (int c = 0; c < components.count(); c++) {
+            Collections.sort(members.get(c));
+            result.add(new ComponentInfo(c, members.get(c), components.borderCount(c)));
+        }
+        return result;
+    }
+
+    // Every country in the graph, in alphabetical order
+    public List<String> getCountries() {
+        Graph countryGraph = network.get().graph;
+        List<String> countries = new ArrayList<>(countryGraph.size());
+        for (int u = 0; u < countryGraph.size(); u++) {
+            countries.add(countryGraph.name(u));
+        }
+        Collections.sort(countries);
+        return countries;
+    }
+
+    public class ReachableInfo {
+        private String country;
+        private int distance;
+        private int hops;
     
-            System.out.print(country + " -> ");
-            for (Map.Entry<String, Integer> neighbor : neighbors.entrySet()) {
-                System.out.print(neighbor.getKey() + "(" + neighbor.getValue() + " km) ");
-            }
-            System.out.println();
+        public ReachableInfo(String country, int distance, int hops) {
+            this.country = country;
+            this.distance = distance;
+            this.hops = hops;
+        }
+    
+        public String getCountry() {
+            return country;
+        }
+    
+        public int getDistance() {
+            return distance;
+        }
+    
+        // Borders crossed on the way
+        public int getHops() {
+            return hops;
+        }
+    }
+
+    public class ComponentInfo {
+        private int id;
+        private List<String> countries;
+        private int borderCount;
+    
+        public ComponentInfo(int id, List<String> countries, int borderCount) {
+            this.id = id;
+            this.countries = countries;
+            this.borderCount = borderCount;
+        }
+    
+        public int getId() {
+            return id;
+        }
+    
+        public List<String> getCountries() {
+            return countries;
+        }
+    
+        public int getBorderCount() {
+            return borderCount;
         }
     }
     
+    
+    public void printGraph() {
+        network.get().graph.printGraph();
+    }
+    
 
     public static void main(String[] args) throws ParseException {
         IRoadTrip a3 = new IRoadTrip(args);
     
-        // debugging test
+        if (a3.options.containsKey("build-route-table") || a3.options.containsKey("verify-route-table")) {
+            a3.routeTableTool();
+        } else if (a3.options.containsKey("batch")) {
+            a3.runBatch();
+        } else if (a3.options.containsKey("serve")) {
+            a3.serve();
+        } else {
+            a3.acceptUserInput();
+        }
+    }
 
-       // a3.printGraph();
+    // Offline step: --build-route-table writes the all-pairs table, --verify-route-table checks one
+    private void routeTableTool() {
+        try {
+            if (options.containsKey("build-route-table")) {
+                long started = System.nanoTime();
+                buildRouteTable(Paths.get(options.get("build-route-table")));
+                System.err.printf("Built route table for %d countries in %.1f ms%n",
+                        network.get().graph.size(), (System.nanoTime() - started) / 1e6);
+            }
+            if (options.containsKey("verify-route-table")) {
+                int mismatches = verifyRouteTable(Paths.get(options.get("verify-route-table")));
+                System.err.println(mismatches == 0
+                        ? "Route table matches Dijkstra for every pair"
+                        : "Route table disagrees with Dijkstra for " + mismatches + " pairs");
+                if (mismatches > 0) {
+                    System.exit(2);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Route table failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Serves /route, /distance and /countries over HTTP until the process is stopped
+    private void serve() {
+        int port = Integer.parseInt(options.get("serve"));
+        int maxConcurrent = Integer.parseInt(options.getOrDefault("max-concurrent", "256"));
+        // Headers and body go out in separate writes; without TCP_NODELAY each response waits on the
+        // client's delayed ACK. The property is process-wide and read once, when the HTTP server classes
+        // initialise, so it is set here in the command-line path rather than by RouteServer itself.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            RouteServer server = new RouteServer(this, port, maxConcurrent);
+            server.start();
+            System.err.println("Serving routes on port " + server.port());
+        } catch (IOException e) {
+            System.err.println("Could not start HTTP server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Streams "from<TAB>to" pairs from a file or stdin ("-") and writes the routes to stdout
+    private void runBatch() {
+        String input = options.get("batch");
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        BatchQueries batch = new BatchQueries(this, options.getOrDefault("format", "tsv"), threads);
     
-        a3.acceptUserInput();
+        long started = System.nanoTime();
+        long answered;
+        try (BufferedReader in = input.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+             Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            answered = batch.run(in, out);
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.printf("Answered %d queries in %.3f s (%.0f queries/s)%n", answered, seconds, answered / seconds);
     }
     
 }
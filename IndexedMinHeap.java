@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+// Binary min-heap over node ids 0..capacity-1 with real decrease-key. Each node appears at most
+// once; positions[] maps a node to its slot so a shorter distance sifts the existing entry up.
+class IndexedMinHeap {
+    private final int[] nodes;
+    private final int[] keys;
+    private final int[] positions;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        nodes = new int[capacity];
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Positions are left stale on clear; contains() checks them against the live slots instead
+    void clear() {
+        size = 0;
+    }
+
+    boolean contains(int node) {
+        int slot = positions[node];
+        return slot >= 0 && slot < size && nodes[slot] == node;
+    }
+
+    int minKey() {
+        return keys[0];
+    }
+
+    int peek() {
+        return nodes[0];
+    }
+
+    // Inserts the node, or lowers its key if it is already queued with a larger one
+    void insertOrDecrease(int node, int key) {
+        if (contains(node)) {
+            int slot = positions[node];
+            if (key < keys[slot]) {
+                keys[slot] = key;
+                siftUp(slot);
+            }
+            return;
+        }
+        nodes[size] = node;
+        keys[size] = key;
+        positions[node] = size;
+        siftUp(size++);
+    }
+
+    int poll() {
+        int min = nodes[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            positions[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int slot) {
+        int node = nodes[slot];
+        int key = keys[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        place(node, key, slot);
+    }
+
+    private void siftDown(int slot) {
+        int node = nodes[slot];
+        int key = keys[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+        place(node, key, slot);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        keys[to] = keys[from];
+        positions[nodes[to]] = to;
+    }
+
+    private void place(int node, int key, int slot) {
+        nodes[slot] = node;
+        keys[slot] = key;
+        positions[node] = slot;
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Yen's k shortest loopless paths. One reverse Dijkstra from the target gives every country's exact
+// distance to the target under the query's banned countries, and every search after it, the first
+// route included, is an A* guided by it. Banning more countries or borders can only lengthen routes,
+// so the tree stays a consistent lower bound in every spur graph, and a spur search stops as soon as
+// it cannot beat the candidates already queued.
+class KShortestPaths {
+    private final Graph graph;
+    private final Dijkstra reverseSearch;
+
+    KShortestPaths(Graph graph) {
+        this.graph = graph;
+        this.reverseSearch = new Dijkstra(graph.reverse());
+    }
+
+    // Up to k loopless routes in ascending length. The mask is left as it was passed in;
+    // scratch.settled and relaxed end up as totals over the reverse tree and all spur searches.
+    List<Route> search(int source, int target, int k, RouteMask mask, SearchScratch scratch) {
+        List<Route> found = new ArrayList<>(k);
+        SearchScratch toTarget = scratch.backward();
+        if (k <= 0 || !mask.allowsNode(source) || !mask.allowsNode(target)) {
+            scratch.settled = 0;
+            scratch.relaxed = 0;
+            return found;
+        }
+        reverseSearch.searchAll(target, toTarget, mask.nodesOnly());
+        int settled = toTarget.settled;
+        int relaxed = toTarget.relaxed;
+        // The tree ignores banned borders, so the first route is an A* search of its own
+        int distance = toTarget.distance(source) == SearchScratch.UNREACHED
+                ? -1 : spurSearch(source, target, scratch, toTarget, mask, Integer.MAX_VALUE);
+        settled += scratch.settled;
+        relaxed += scratch.relaxed;
+        if (distance < 0) {
+            scratch.settled = settled;
+            scratch.relaxed = relaxed;
+            return found;
+        }
+        found.add(new Route(Arrays.copyOf(scratch.route, scratch.routeLength),
+                Arrays.copyOf(scratch.hops, scratch.routeLength), distance));
+
+        // Candidates sorted by length, trimmed to the number of routes still needed
+        List<Route> candidates = new ArrayList<>();
+        int[] bannedEdges = new int[8];
+        while (found.size() < k) {
+            Route last = found.get(found.size() - 1);
+            int needed = k - found.size();
+            int rootDistance = 0;
+            for (int i = 0; i < last.nodes.length - 1; i++) {
+                int spur = last.nodes[i];
+                if (i > 0) {
+                    // The root path up to the spur node may not be revisited
+                    mask.banNode(last.nodes[i - 1]);
+                    rootDistance += last.hops[i];
+                }
+                int bound = candidates.size() >= needed ? candidates.get(needed - 1).distance : Integer.MAX_VALUE;
+                int toGo = toTarget.distance(spur);
+                if (toGo == SearchScratch.UNREACHED || (long) rootDistance + toGo > bound) {
+                    continue;
+                }
+
+                // Routes already found with the same root must leave the spur node another way
+                int banned = 0;
+                for (Route route : found) {
+                    if (route.nodes.length > i + 1 && sharesRoot(route, last, i)) {
+                        int next = route.nodes[i + 1];
+                        for (int e = graph.firstEdge(spur); e < graph.endEdge(spur); e++) {
+                            if (graph.target(e) == next && mask.allowsEdge(e)) {
+                                mask.banEdge(e);
+                                if (banned == bannedEdges.length) {
+                                    bannedEdges = Arrays.copyOf(bannedEdges, banned * 2);
+                                }
+                                bannedEdges[banned++] = e;
+                            }
+                        }
+                    }
+                }
+                int limit = bound == Integer.MAX_VALUE ? bound : bound - rootDistance;
+                int spurDistance = spurSearch(spur, target, scratch, toTarget, mask, limit);
+                settled += scratch.settled;
+                relaxed += scratch.relaxed;
+                for (int b = 0; b < banned; b++) {
+                    mask.allowEdge(bannedEdges[b]);
+                }
+
+                if (spurDistance >= 0) {
+                    offer(candidates, join(last, i, rootDistance, spurDistance, scratch), needed);
+                }
+            }
+            for (int i = 0; i < last.nodes.length - 2; i++) {
+                mask.allowNode(last.nodes[i]);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            found.add(candidates.remove(0));
+        }
+        scratch.settled = settled;
+        scratch.relaxed = relaxed;
+        return found;
+    }
+
+    // A* from the spur node with the reverse tree as heuristic; gives up once no route fits in limit
+    private int spurSearch(int source, int target, SearchScratch scratch, SearchScratch toTarget,
+                           RouteMask mask, int limit) {
+        scratch.reset();
+        IndexedMinHeap heap = scratch.heap;
+        scratch.reach(source, 0, -1);
+        heap.insertOrDecrease(source, toTarget.distance(source));
+
+        while (!heap.isEmpty() && heap.minKey() <= limit) {
+            int current = heap.poll();
+            scratch.settled++;
+            if (current == target) {
+                return Dijkstra.extractRoute(target, scratch);
+            }
+            int currentDist = scratch.distance(current);
+            scratch.relaxed += graph.endEdge(current) - graph.firstEdge(current);
+            for (int e = graph.firstEdge(current); e < graph.endEdge(current); e++) {
+                int next = graph.target(e);
+                int toGo = toTarget.distance(next);
+                if (toGo == SearchScratch.UNREACHED || !mask.allows(e, next)) {
+                    continue;
+                }
+                int newDist = currentDist + graph.weight(e);
+                if (newDist < scratch.distance(next)) {
+                    scratch.reach(next, newDist, current);
+                    heap.insertOrDecrease(next, newDist + toGo);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sharesRoot(Route a, Route b, int spurIndex) {
+        for (int i = 0; i <= spurIndex; i++) {
+            if (a.nodes[i] != b.nodes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The root of route up to spurIndex followed by the spur path left in scratch
+    private static Route join(Route route, int spurIndex, int rootDistance, int spurDistance, SearchScratch scratch) {
+        int length = spurIndex + scratch.routeLength;
+        int[] nodes = Arrays.copyOf(route.nodes, length);
+        int[] hops = Arrays.copyOf(route.hops, length);
+        System.arraycopy(scratch.route, 1, nodes, spurIndex + 1, scratch.routeLength - 1);
+        System.arraycopy(scratch.hops, 1, hops, spurIndex + 1, scratch.routeLength - 1);
+        return new Route(nodes, hops, rootDistance + spurDistance);
+    }
+
+    private static void offer(List<Route> candidates, Route route, int needed) {
+        int at = candidates.size();
+        while (at > 0 && candidates.get(at - 1).distance > route.distance) {
+            at--;
+        }
+        if (at >= needed) {
+            return;
+        }
+        for (Route candidate : candidates) {
+            if (candidate.distance == route.distance && Arrays.equals(candidate.nodes, route.nodes)) {
+                return;
+            }
+        }
+        candidates.add(at, route);
+        if (candidates.size() > needed) {
+            candidates.remove(candidates.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of durations in nanoseconds: each power of two is split into eight buckets,
+// so any percentile is reported within 12.5% of the true value. Recording is a handful of atomic
+// increments into preallocated arrays and never allocates.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    private static int bucket(long value) {
+        int magnitude = 64 - Long.numberOfLeadingZeros(value);
+        if (magnitude <= SUB_BUCKET_BITS + 1) {
+            return (int) value;
+        }
+        // The highest bit picks the power of two, the next three bits the bucket within it
+        int shift = magnitude - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // The largest value that falls into the given bucket
+    private static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / n;
+    }
+
+    long maxNanos() {
+        return max.get();
+    }
+
+    // The q-quantile (0 < q <= 1) in nanoseconds, as the upper bound of its bucket
+    long percentileNanos(double q) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                return Math.min(upperBound(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int b = 0; b < buckets.length(); b++) {
+            buckets.set(b, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    // e.g. "1200 queries, mean 4.1 us, p50 3.5 us, p90 7.9 us, p99 21 us, p99.9 80 us, max 1.3 ms"
+    String summary(String unit) {
+        return String.format("%d %s, mean %s, p50 %s, p90 %s, p99 %s, p99.9 %s, max %s", count(), unit,
+                format(meanNanos()), format(percentileNanos(0.5)), format(percentileNanos(0.9)),
+                format(percentileNanos(0.99)), format(percentileNanos(0.999)), format(maxNanos()));
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 10_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        } else if (nanos < 10_000_000) {
+            return String.format("%.0f us", nanos / 1e3);
+        }
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,36 @@
+// Admissible A* estimates between countries, taken from the great-circle capital distances in
+// capdist.csv. Border weights are those same distances rounded to whole km, so a route of k
+// borders can undercut the direct distance by up to (k + 1) / 2 km. k is bounded two ways: by the
+// route length over the shortest border, and by the country count since routes are simple paths.
+// Each estimate takes whichever worst case is smaller.
+//
+// The table is size by size, so past MAX_SIZE countries none is kept and every estimate is 0: A* then
+// searches like Dijkstra, which is still exact.
+class LowerBounds {
+    static final int MAX_SIZE = 4096;
+
+    private final int size;
+    private final int[] bounds;
+    private final double scale;
+
+    LowerBounds(int size, int shortestBorder) {
+        this.size = size;
+        this.bounds = size <= MAX_SIZE ? new int[size * size] : null;
+        this.scale = shortestBorder > 0 ? 2.0 * shortestBorder / (2.0 * shortestBorder + 1) : 0;
+    }
+
+    boolean isEmpty() {
+        return bounds == null;
+    }
+
+    void set(int from, int to, double km) {
+        double byBorderLength = (km - 1) * scale;
+        // A shortest route never revisits a country, so k < size and (k + 1) / 2 <= size / 2
+        double byCountryCount = km - size / 2.0;
+        bounds[from * size + to] = (int) Math.max(0, Math.floor(Math.max(byBorderLength, byCountryCount)));
+    }
+
+    int estimate(int from, int to) {
+        return bounds == null ? 0 : bounds[from * size + to];
+    }
+}
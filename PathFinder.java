@@ -0,0 +1,28 @@
+import java.util.Set;
+
+// A point-to-point shortest-path strategy over the country graph. Implementations leave the route
+// in the scratch state and count settled nodes there, so strategies can be compared per query.
+interface PathFinder {
+    // Names accepted by create, as --strategy and setStrategy take them
+    Set<String> STRATEGIES = Set.of("dijkstra", "astar", "bidijkstra", "biastar", "ch");
+
+    // Returns the route length in km, or -1 if the target cannot be reached
+    int search(int source, int target, SearchScratch scratch);
+
+    static PathFinder create(String strategy, Graph graph, LowerBounds bounds) {
+        switch (strategy) {
+            case "dijkstra":
+                return new Dijkstra(graph);
+            case "astar":
+                return new AStar(graph, bounds);
+            case "bidijkstra":
+                return new BidirectionalSearch(graph, null);
+            case "biastar":
+                return new BidirectionalSearch(graph, bounds);
+            case "ch":
+                return new ContractionHierarchy(graph);
+            default:
+                throw new IllegalArgumentException("Unknown path-finding strategy: " + strategy);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// One version of everything derived from the data files: the graph, capital distances, country names
+// and codes, and the search structures built on them. A version never changes once published; a
+// reload or a strategy switch builds a new one and swaps it in, so a query that read the old version
+// finishes on it unaffected. Tree caches and route tables belong to one version and are never shared
+// with the next.
+final class RoadNetwork {
+    final long version;
+    final Graph graph;
+    final CapitalDistances distances;
+    final Map<String, String> countryCodes;
+    final CountryResolver resolver;
+    final LowerBounds lowerBounds;
+    final String strategy;
+    final PathFinder pathFinder;
+    final ShortestPathTreeCache treeCache;
+    final RouteTable routeTable;
+    final Dijkstra maskedSearch;
+    final KShortestPaths kShortestPaths;
+    final TripPlanner tripPlanner;
+
+    // Dated queries: state_name.tsv is read into per-epoch masks on the first one
+    private final String stateNameFile;
+    private volatile StateEpochs stateEpochs;
+
+    RoadNetwork(long version, Graph graph, CapitalDistances distances, Map<String, String> countryCodes,
+                CountryResolver resolver, LowerBounds lowerBounds, String stateNameFile, String strategy) {
+        this(version, graph, distances, countryCodes, resolver, lowerBounds, stateNameFile, strategy,
+                PathFinder.create(strategy, graph, lowerBounds), null, null, null);
+    }
+
+    private RoadNetwork(long version, Graph graph, CapitalDistances distances, Map<String, String> countryCodes,
+                        CountryResolver resolver, LowerBounds lowerBounds, String stateNameFile, String strategy,
+                        PathFinder pathFinder, ShortestPathTreeCache treeCache, RouteTable routeTable,
+                        StateEpochs stateEpochs) {
+        this.version = version;
+        this.graph = graph;
+        this.distances = distances;
+        this.countryCodes = countryCodes;
+        this.resolver = resolver;
+        this.lowerBounds = lowerBounds;
+        this.stateNameFile = stateNameFile;
+        this.strategy = strategy;
+        this.pathFinder = pathFinder;
+        this.treeCache = treeCache;
+        this.routeTable = routeTable;
+        this.stateEpochs = stateEpochs;
+        this.maskedSearch = new Dijkstra(graph);
+        this.kShortestPaths = new KShortestPaths(graph);
+        this.tripPlanner = new TripPlanner(graph);
+    }
+
+    // The same data with another search strategy; unknown names throw IllegalArgumentException
+    RoadNetwork withStrategy(String strategy) {
+        return new RoadNetwork(version, graph, distances, countryCodes, resolver, lowerBounds, stateNameFile,
+                strategy, PathFinder.create(strategy, graph, lowerBounds), treeCache, routeTable, stateEpochs);
+    }
+
+    // The same data with a fresh tree cache of maxBytes, or none if maxBytes is 0
+    RoadNetwork withTreeCache(long maxBytes) {
+        return new RoadNetwork(version, graph, distances, countryCodes, resolver, lowerBounds, stateNameFile,
+                strategy, pathFinder, maxBytes > 0 ? new ShortestPathTreeCache(graph, maxBytes) : null,
+                routeTable, stateEpochs);
+    }
+
+    // The same data answered from a route table built for this graph, or searched again if table is null
+    RoadNetwork withRouteTable(RouteTable table) {
+        return new RoadNetwork(version, graph, distances, countryCodes, resolver, lowerBounds, stateNameFile,
+                strategy, pathFinder, treeCache, table, stateEpochs);
+    }
+
+    StateEpochs stateEpochs() {
+        StateEpochs epochs = stateEpochs;
+        if (epochs == null) {
+            synchronized (this) {
+                epochs = stateEpochs;
+                if (epochs == null) {
+                    try {
+                        epochs = new StateEpochs(graph, StateIntervals.load(stateNameFile));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    stateEpochs = epochs;
+                }
+            }
+        }
+        return epochs;
+    }
+}
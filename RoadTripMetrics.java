@@ -0,0 +1,260 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Load and query instrumentation for one IRoadTrip. Load phases and skipped borders describe the
+// network being served and are replaced when a reload is accepted; query counters are LongAdders and
+// latency histograms, so recording a query only touches preallocated counters.
+class RoadTripMetrics implements RoadTripMetricsMBean {
+    private final Map<String, Long> loadPhases = new LinkedHashMap<>();
+
+    // Counted when the graph is built from the text files and kept in the snapshot with it
+    private long skippedWithoutStateCode;
+    private long skippedToUnknownCountry;
+    private long skippedWithoutDistance;
+
+    private long dataVersion;
+    private long reloads;
+    private long rejectedReloads;
+
+    private final LatencyHistogram routeLatency = new LatencyHistogram();
+    private final LatencyHistogram alternativesLatency = new LatencyHistogram();
+    private final LatencyHistogram tripLatency = new LatencyHistogram();
+    private final LatencyHistogram reachableLatency = new LatencyHistogram();
+    private final LongAdder unreachable = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder relaxed = new LongAdder();
+
+    private volatile ObjectName registeredName;
+
+    // Phase timings and skipped borders (without a state code, to an unknown country, without a distance)
+    // of the network now being served
+    synchronized void loaded(Map<String, Long> phases, long[] skipped) {
+        loadPhases.clear();
+        loadPhases.putAll(phases);
+        skippedWithoutStateCode = skipped[0];
+        skippedToUnknownCountry = skipped[1];
+        skippedWithoutDistance = skipped[2];
+    }
+
+    synchronized void reloaded(long version) {
+        dataVersion = version;
+        reloads++;
+    }
+
+    synchronized void reloadRejected() {
+        rejectedReloads++;
+    }
+
+    // One point-to-point query; the scratch still holds the search's settled and relaxed counts
+    void route(long nanos, SearchScratch scratch, boolean found) {
+        routeLatency.record(nanos);
+        settled.add(scratch.settled);
+        relaxed.add(scratch.relaxed);
+        if (!found) {
+            unreachable.increment();
+        }
+    }
+
+    void alternatives(long nanos, SearchScratch scratch) {
+        alternativesLatency.record(nanos);
+        settled.add(scratch.settled);
+        relaxed.add(scratch.relaxed);
+    }
+
+    void trip(long nanos) {
+        tripLatency.record(nanos);
+    }
+
+    void reachable(long nanos, SearchScratch scratch) {
+        reachableLatency.record(nanos);
+        settled.add(scratch.settled);
+        relaxed.add(scratch.relaxed);
+    }
+
+    // Registers under iroadtrip:type=Metrics, or with an instance suffix if another IRoadTrip has that name
+    void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            try {
+                registeredName = server.registerMBean(this, new ObjectName("iroadtrip:type=Metrics")).getObjectName();
+            } catch (InstanceAlreadyExistsException e) {
+                registeredName = server.registerMBean(this, new ObjectName("iroadtrip:type=Metrics,instance="
+                        + Integer.toHexString(System.identityHashCode(this)))).getObjectName();
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Removes the MBean again, so the name is free for the next IRoadTrip; does nothing if it was never registered
+    synchronized void unregister() {
+        ObjectName name = registeredName;
+        registeredName = null;
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Could not unregister metrics MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized String getLoadPhases() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Long> phase : loadPhases.entrySet()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(phase.getKey()).append(' ').append(String.format("%.1f ms", phase.getValue() / 1e6));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public synchronized long getLoadMillis() {
+        long total = 0;
+        for (long nanos : loadPhases.values()) {
+            total += nanos;
+        }
+        return total / 1_000_000;
+    }
+
+    @Override
+    public synchronized long getSkippedBordersWithoutStateCode() {
+        return skippedWithoutStateCode;
+    }
+
+    @Override
+    public synchronized long getSkippedBordersToUnknownCountry() {
+        return skippedToUnknownCountry;
+    }
+
+    @Override
+    public synchronized long getSkippedBordersWithoutDistance() {
+        return skippedWithoutDistance;
+    }
+
+    @Override
+    public synchronized long getReloads() {
+        return reloads;
+    }
+
+    @Override
+    public synchronized long getRejectedReloads() {
+        return rejectedReloads;
+    }
+
+    @Override
+    public long getRouteQueries() {
+        return routeLatency.count();
+    }
+
+    @Override
+    public long getUnreachableRouteQueries() {
+        return unreachable.sum();
+    }
+
+    @Override
+    public long getSettledNodes() {
+        return settled.sum();
+    }
+
+    @Override
+    public long getRelaxedBorders() {
+        return relaxed.sum();
+    }
+
+    @Override
+    public long getRouteLatencyMeanMicros() {
+        return routeLatency.meanNanos() / 1000;
+    }
+
+    @Override
+    public long getRouteLatencyP50Micros() {
+        return routeLatency.percentileNanos(0.5) / 1000;
+    }
+
+    @Override
+    public long getRouteLatencyP90Micros() {
+        return routeLatency.percentileNanos(0.9) / 1000;
+    }
+
+    @Override
+    public long getRouteLatencyP99Micros() {
+        return routeLatency.percentileNanos(0.99) / 1000;
+    }
+
+    @Override
+    public long getRouteLatencyP999Micros() {
+        return routeLatency.percentileNanos(0.999) / 1000;
+    }
+
+    @Override
+    public long getRouteLatencyMaxMicros() {
+        return routeLatency.maxNanos() / 1000;
+    }
+
+    @Override
+    public long getAlternativesQueries() {
+        return alternativesLatency.count();
+    }
+
+    @Override
+    public long getTripQueries() {
+        return tripLatency.count();
+    }
+
+    @Override
+    public long getReachableQueries() {
+        return reachableLatency.count();
+    }
+
+    @Override
+    public String dump() {
+        long routes = routeLatency.count() + alternativesLatency.count() + reachableLatency.count();
+        StringBuilder out = new StringBuilder(512);
+        out.append("load: ").append(getLoadPhases()).append('\n');
+        synchronized (this) {
+            if (reloads + rejectedReloads > 0) {
+                out.append("reloads: ").append(reloads).append(" accepted, now version ").append(dataVersion)
+                        .append(", ").append(rejectedReloads).append(" rejected\n");
+            }
+        }
+        out.append("skipped borders: ").append(getSkippedBordersWithoutStateCode())
+                .append(" from countries without a state code, ").append(getSkippedBordersToUnknownCountry())
+                .append(" to countries missing from borders.txt, ").append(getSkippedBordersWithoutDistance())
+                .append(" without a capital distance\n");
+        out.append("routes: ").append(routeLatency.summary("queries"))
+                .append(", ").append(unreachable.sum()).append(" unreachable\n");
+        out.append("alternatives: ").append(alternativesLatency.summary("queries")).append('\n');
+        out.append("trips: ").append(tripLatency.summary("queries")).append('\n');
+        out.append("reachable: ").append(reachableLatency.summary("queries")).append('\n');
+        out.append("search: ").append(settled.sum()).append(" nodes settled, ").append(relaxed.sum())
+                .append(" borders relaxed");
+        if (routes > 0) {
+            out.append(String.format(" (%.1f and %.1f per query)", settled.sum() / (double) routes,
+                    relaxed.sum() / (double) routes));
+        }
+        return out.append('\n').toString();
+    }
+
+    // Clears the query counters; load phases and skipped borders describe the graph and are kept
+    @Override
+    public void reset() {
+        routeLatency.reset();
+        alternativesLatency.reset();
+        tripLatency.reset();
+        reachableLatency.reset();
+        unreachable.reset();
+        settled.reset();
+        relaxed.reset();
+    }
+}
@@ -0,0 +1,47 @@
+// JMX view of RoadTripMetrics, registered as iroadtrip:type=Metrics. Latencies are in microseconds;
+// skipped-border counts are those of the graph being served, whether built from text or a snapshot.
+public interface RoadTripMetricsMBean {
+    String getLoadPhases();
+
+    long getLoadMillis();
+
+    long getSkippedBordersWithoutStateCode();
+
+    long getSkippedBordersToUnknownCountry();
+
+    long getSkippedBordersWithoutDistance();
+
+    long getReloads();
+
+    long getRejectedReloads();
+
+    long getRouteQueries();
+
+    long getUnreachableRouteQueries();
+
+    long getSettledNodes();
+
+    long getRelaxedBorders();
+
+    long getRouteLatencyMeanMicros();
+
+    long getRouteLatencyP50Micros();
+
+    long getRouteLatencyP90Micros();
+
+    long getRouteLatencyP99Micros();
+
+    long getRouteLatencyP999Micros();
+
+    long getRouteLatencyMaxMicros();
+
+    long getAlternativesQueries();
+
+    long getTripQueries();
+
+    long getReachableQueries();
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,12 @@
+// A route as country ids; hops[i] is the weight of the border entering nodes[i], hops[0] is 0
+final class Route {
+    final int[] nodes;
+    final int[] hops;
+    final int distance;
+
+    Route(int[] nodes, int[] hops, int distance) {
+        this.nodes = nodes;
+        this.hops = hops;
+        this.distance = distance;
+    }
+}
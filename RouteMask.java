@@ -0,0 +1,83 @@
+// Per-query restriction of the immutable graph: the countries a route may enter and the borders it
+// may not cross. Searches consult it while relaxing edges, so excluding a country needs no rebuild.
+// A mask is mutable and meant for one query on one thread.
+class RouteMask {
+    private final long[] nodes;
+    private long[] bannedEdges;
+    private final int edgeCount;
+
+    // Every country allowed unless allowed is given, in which case its set bits are the allowed ones
+    RouteMask(Graph graph, long[] allowed) {
+        nodes = allowed != null ? allowed.clone() : new long[(graph.size() + 63) >>> 6];
+        if (allowed == null) {
+            for (int u = 0; u < graph.size(); u++) {
+                nodes[u >>> 6] |= 1L << u;
+            }
+        }
+        edgeCount = graph.edgeCount();
+    }
+
+    private RouteMask(long[] nodes, int edgeCount) {
+        this.nodes = nodes;
+        this.edgeCount = edgeCount;
+    }
+
+    boolean allowsNode(int node) {
+        return (nodes[node >>> 6] & 1L << node) != 0;
+    }
+
+    boolean allowsEdge(int edge) {
+        return bannedEdges == null || (bannedEdges[edge >>> 6] & 1L << edge) == 0;
+    }
+
+    // True if a search may take edge into next
+    boolean allows(int edge, int next) {
+        return (nodes[next >>> 6] & 1L << next) != 0
+                && (bannedEdges == null || (bannedEdges[edge >>> 6] & 1L << edge) == 0);
+    }
+
+    void banNode(int node) {
+        nodes[node >>> 6] &= ~(1L << node);
+    }
+
+    void allowNode(int node) {
+        nodes[node >>> 6] |= 1L << node;
+    }
+
+    void banEdge(int edge) {
+        if (bannedEdges == null) {
+            bannedEdges = new long[(edgeCount + 63) >>> 6];
+        }
+        bannedEdges[edge >>> 6] |= 1L << edge;
+    }
+
+    void allowEdge(int edge) {
+        if (bannedEdges != null) {
+            bannedEdges[edge >>> 6] &= ~(1L << edge);
+        }
+    }
+
+    // Bans both directions of the border between a and b; returns false if they do not share one
+    boolean banBorder(Graph graph, int a, int b) {
+        boolean found = false;
+        for (int e = graph.firstEdge(a); e < graph.endEdge(a); e++) {
+            if (graph.target(e) == b) {
+                banEdge(e);
+                found = true;
+            }
+        }
+        for (int e = graph.firstEdge(b); e < graph.endEdge(b); e++) {
+            if (graph.target(e) == a) {
+                banEdge(e);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // A view sharing this mask's countries but no banned borders, for a search over the reverse graph
+    // whose edge ids differ; dropping border bans only makes that search's distances smaller
+    RouteMask nodesOnly() {
+        return new RouteMask(nodes, edgeCount);
+    }
+}
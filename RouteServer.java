@@ -0,0 +1,376 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Embedded HTTP front end over one shared IRoadTrip:
+//   GET /route?from=&to=     border-by-border route; date=, avoid= and closed= restrict it
+//   GET /routes?from=&to=&k= the k shortest loopless routes
+//   GET /trip?from=&stops=   cheapest order through stops (A;B;C), optionally ending at to=; at most
+//                            MAX_TRIP_STOPS stops, and only MAX_CONCURRENT_TRIPS trips planned at once
+//   GET /reachable?from=     countries nearest first, within km= of road and/or the first k=
+//   GET /distance?a=&b=      capital distance between two state codes (getDistance)
+//   GET /countries           every routable country
+// Each exchange runs on its own virtual thread when the JVM has them, and on a pooled platform
+// thread otherwise. Searches use IRoadTrip's per-thread scratch, so the query path takes no shared
+// lock; a virtual thread builds its scratch on its first search. Responses go out without Nagle's
+// delay only if the process-wide system property sun.net.httpserver.nodelay was set before the first
+// server was created, as IRoadTrip's --serve does. A semaphore caps the requests being answered at
+// once; excess ones get 503.
+class RouteServer {
+    // Held-Karp memory doubles with every stop and each stop builds a full shortest-path tree on the
+    // shared ForkJoin pool, so trips get a far smaller budget than the other endpoints
+    static final int MAX_TRIP_STOPS = 12;
+    static final int MAX_CONCURRENT_TRIPS = 2;
+
+    private final IRoadTrip roadTrip;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Semaphore tripPermits = new Semaphore(MAX_CONCURRENT_TRIPS);
+
+    RouteServer(IRoadTrip roadTrip, int port, int maxConcurrent) throws IOException {
+        this.roadTrip = roadTrip;
+        this.permits = new Semaphore(maxConcurrent);
+        this.executor = requestExecutor(maxConcurrent);
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/route", exchange -> handle(exchange, this::route));
+        server.createContext("/routes", exchange -> handle(exchange, this::routes));
+        server.createContext("/trip", exchange -> handle(exchange, tripPermits, this::trip));
+        server.createContext("/reachable", exchange -> handle(exchange, this::reachable));
+        server.createContext("/distance", exchange -> handle(exchange, this::distance));
+        server.createContext("/countries", exchange -> handle(exchange, this::countries));
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Virtual threads arrived in Java 21; look the factory up so the build can still target 17
+    private static ExecutorService requestExecutor(int maxConcurrent) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+                Thread thread = new Thread(runnable, "route-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private interface Endpoint {
+        // Returns the JSON body; a thrown IllegalArgumentException becomes a 400
+        String respond(Map<String, String> query);
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        handle(exchange, null, endpoint);
+    }
+
+    // endpointPermits, if not null, is a second and smaller limit for one expensive endpoint
+    private void handle(HttpExchange exchange, Semaphore endpointPermits, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, error("only GET is supported"));
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                send(exchange, 503, error("too many concurrent requests"));
+                return;
+            }
+            try {
+                if (endpointPermits != null && !endpointPermits.tryAcquire()) {
+                    send(exchange, 503, error("too many concurrent requests to this endpoint"));
+                    return;
+                }
+                try {
+                    send(exchange, 200, endpoint.respond(parseQuery(exchange.getRequestURI().getRawQuery())));
+                } catch (IllegalArgumentException e) {
+                    send(exchange, 400, error(e.getMessage()));
+                } finally {
+                    if (endpointPermits != null) {
+                        endpointPermits.release();
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private String route(Map<String, String> query) {
+        String start = country(query, "from");
+        String end = country(query, "to");
+        List<String> avoid = avoidedCountries(query);
+        List<List<String>> closed = closedBorders(query);
+        // An optional date=yyyy-MM-dd routes over the countries that existed on that day
+        String date = query.get("date");
+        IRoadTrip.PathInfo route;
+        if (date != null) {
+            if (!avoid.isEmpty() || !closed.isEmpty()) {
+                throw new IllegalArgumentException("date cannot be combined with avoid or closed");
+            }
+            route = roadTrip.findPath(start, end, LocalDate.ofEpochDay(StateIntervals.parseDate(date)));
+        } else if (!avoid.isEmpty() || !closed.isEmpty()) {
+            route = roadTrip.findPath(start, end, avoid, closed);
+        } else {
+            route = roadTrip.findPath(start, end);
+        }
+
+        StringBuilder out = new StringBuilder(256);
+        out.append("{\"from\":");
+        Json.quote(out, start);
+        out.append(",\"to\":");
+        Json.quote(out, end);
+        if (route.getPath().size() > 1 || start.equals(end)) {
+            appendRoute(out.append(','), route);
+        } else {
+            out.append(",\"distance\":-1,\"path\":[],\"distances\":[]");
+        }
+        return out.append('}').toString();
+    }
+
+    private String routes(Map<String, String> query) {
+        String start = country(query, "from");
+        String end = country(query, "to");
+        int k;
+        try {
+            k = Integer.parseInt(query.getOrDefault("k", "3"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("k must be a number");
+        }
+        if (k < 1 || k > 100) {
+            throw new IllegalArgumentException("k must be between 1 and 100");
+        }
+        List<IRoadTrip.PathInfo> routes = roadTrip.findPaths(start, end, k, avoidedCountries(query), closedBorders(query));
+
+        StringBuilder out = new StringBuilder(256 * routes.size() + 64);
+        out.append("{\"from\":");
+        Json.quote(out, start);
+        out.append(",\"to\":");
+        Json.quote(out, end);
+        out.append(",\"routes\":[");
+        for (int i = 0; i < routes.size(); i++) {
+            appendRoute(out.append(i == 0 ? "{" : ",{"), routes.get(i)).append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    private String trip(Map<String, String> query) {
+        String start = country(query, "from");
+        String end = query.containsKey("to") ? country(query, "to") : null;
+        List<String> stops = new ArrayList<>();
+        Set<String> waypoints = new HashSet<>();
+        for (String input : required(query, "stops").split(";")) {
+            String stop = roadTrip.resolveCountry(input.trim());
+            if (stop == null) {
+                throw new IllegalArgumentException("unknown country: " + input);
+            }
+            stops.add(stop);
+            waypoints.add(stop);
+        }
+        // Counted as planTrip counts them: repeats, the start and the end cost nothing
+        waypoints.remove(start);
+        waypoints.remove(end);
+        if (waypoints.size() > MAX_TRIP_STOPS) {
+            throw new IllegalArgumentException("at most " + MAX_TRIP_STOPS + " distinct stops");
+        }
+        IRoadTrip.PathInfo trip = roadTrip.planTrip(start, stops, end);
+        if (trip.getPath().isEmpty()) {
+            // Every name resolved, so planTrip only refuses countries missing from the --as-of map
+            throw new IllegalArgumentException("a country on the trip did not exist on the configured date");
+        }
+
+        StringBuilder out = new StringBuilder(512);
+        out.append("{\"from\":");
+        Json.quote(out, start);
+        out.append(",\"stops\":");
+        Json.stringArray(out, stops);
+        if (trip.getPath().size() > 1 || trip.getPath().containsAll(stops)) {
+            appendRoute(out.append(','), trip);
+        } else {
+            out.append(",\"distance\":-1,\"path\":[],\"distances\":[]");
+        }
+        return out.append('}').toString();
+    }
+
+    private String reachable(Map<String, String> query) {
+        String start = country(query, "from");
+        int km = number(query, "km", Integer.MAX_VALUE);
+        int k = number(query, "k", Integer.MAX_VALUE);
+        List<IRoadTrip.ReachableInfo> reached = roadTrip.findReachable(start, km, k);
+
+        StringBuilder out = new StringBuilder(64 * reached.size() + 64);
+        out.append("{\"from\":");
+        Json.quote(out, start);
+        out.append(",\"countries\":[");
+        for (int i = 0; i < reached.size(); i++) {
+            IRoadTrip.ReachableInfo country = reached.get(i);
+            out.append(i == 0 ? "{\"country\":" : ",{\"country\":");
+            Json.quote(out, country.getCountry());
+            out.append(",\"distance\":").append(country.getDistance())
+                    .append(",\"hops\":").append(country.getHops()).append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    // A non-negative whole-number parameter, or fallback if it is absent
+    private static int number(Map<String, String> query, String name, int fallback) {
+        String value = query.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(name + " must be a non-negative number");
+    }
+
+    // "distance", "path" and "distances" fields of a found route
+    private static StringBuilder appendRoute(StringBuilder out, IRoadTrip.PathInfo route) {
+        int total = 0;
+        for (int km : route.getDistances()) {
+            total += km;
+        }
+        out.append("\"distance\":").append(total).append(",\"path\":");
+        Json.stringArray(out, route.getPath());
+        out.append(",\"distances\":");
+        Json.intArray(out, route.getDistances());
+        return out;
+    }
+
+    private String country(Map<String, String> query, String name) {
+        String input = required(query, name);
+        String country = roadTrip.resolveCountry(input);
+        if (country == null) {
+            throw new IllegalArgumentException("unknown country: " + input);
+        }
+        return country;
+    }
+
+    // avoid=A;B lists countries a route may not enter (names can contain commas, hence ';')
+    private List<String> avoidedCountries(Map<String, String> query) {
+        List<String> countries = new ArrayList<>();
+        String avoid = query.get("avoid");
+        if (avoid != null && !avoid.isBlank()) {
+            for (String input : avoid.split(";")) {
+                String country = roadTrip.resolveCountry(input.trim());
+                if (country == null) {
+                    throw new IllegalArgumentException("unknown country: " + input);
+                }
+                countries.add(country);
+            }
+        }
+        return countries;
+    }
+
+    // closed=A|B;C|D lists borders a route may not cross, in either direction. HttpServer rejects a raw
+    // '|' in the request URI, so clients send it as %7C and it arrives here decoded.
+    private List<List<String>> closedBorders(Map<String, String> query) {
+        List<List<String>> borders = new ArrayList<>();
+        String closed = query.get("closed");
+        if (closed != null && !closed.isBlank()) {
+            for (String border : closed.split(";")) {
+                String[] ends = border.split("\\|");
+                if (ends.length != 2) {
+                    throw new IllegalArgumentException("a closed border is written A|B: " + border);
+                }
+                String a = roadTrip.resolveCountry(ends[0].trim());
+                String b = roadTrip.resolveCountry(ends[1].trim());
+                if (a == null || b == null) {
+                    throw new IllegalArgumentException("unknown country: " + (a == null ? ends[0] : ends[1]));
+                }
+                borders.add(List.of(a, b));
+            }
+        }
+        return borders;
+    }
+
+    private String distance(Map<String, String> query) {
+        String a = required(query, "a");
+        String b = required(query, "b");
+        StringBuilder out = new StringBuilder(64);
+        out.append("{\"a\":");
+        Json.quote(out, a);
+        out.append(",\"b\":");
+        Json.quote(out, b);
+        return out.append(",\"distance\":").append(roadTrip.getDistance(a, b)).append('}').toString();
+    }
+
+    private String countries(Map<String, String> query) {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("{\"countries\":");
+        Json.stringArray(out, roadTrip.getCountries());
+        return out.append('}').toString();
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder(64);
+        out.append("{\"error\":");
+        Json.quote(out, message);
+        return out.append('}').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
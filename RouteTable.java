@@ -0,0 +1,163 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Precomputed all-pairs routes: a distance matrix and a hop matrix, built offline with one Dijkstra
+// per source in parallel and memory-mapped at query time, so a query is a walk through the table.
+// The hop matrix holds, for each (source, destination), the country before the destination on
+// Dijkstra's route. Walking those predecessors reproduces findPath's Dijkstra output exactly, ties
+// included, which a forward next-hop matrix built from per-node trees would not guarantee.
+//
+// Layout: magic, version, country count, graph fingerprint, then n * n distances and n * n hops as
+// big-endian ints, row-major by source. Unreachable pairs have distance -1 and hop -1.
+class RouteTable {
+    private static final int MAGIC = 0x49525254; // "IRRT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+
+    private final int size;
+    private final IntBuffer distances;
+    private final IntBuffer hops;
+
+    private RouteTable(int size, IntBuffer distances, IntBuffer hops) {
+        this.size = size;
+        this.distances = distances;
+        this.hops = hops;
+    }
+
+    static void build(Graph graph, Path file) throws IOException {
+        int n = graph.size();
+        if ((long) n * n * 8 + HEADER_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Route table for " + n + " countries exceeds 2 GB");
+        }
+        int[] distance = new int[n * n];
+        int[] previous = new int[n * n];
+        Dijkstra dijkstra = new Dijkstra(graph);
+        ThreadLocal<SearchScratch> scratches = ThreadLocal.withInitial(() -> new SearchScratch(n));
+
+        IntStream.range(0, n).parallel().forEach(source -> {
+            SearchScratch scratch = scratches.get();
+            dijkstra.searchAll(source, scratch);
+            int row = source * n;
+            for (int v = 0; v < n; v++) {
+                int d = scratch.distance(v);
+                distance[row + v] = d == SearchScratch.UNREACHED ? -1 : d;
+                previous[row + v] = scratch.previous(v);
+            }
+        });
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "routes", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeLong(graph.fingerprint());
+            for (int d : distance) {
+                out.writeInt(d);
+            }
+            for (int p : previous) {
+                out.writeInt(p);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Maps the table; fails if the file is not a route table for exactly this graph
+    static RouteTable open(Path file, Graph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int n = graph.size();
+            if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException(file + " is not a route table");
+            }
+            if (in.getInt() != n || in.getLong() != graph.fingerprint()
+                    || in.remaining() != (long) n * n * 8) {
+                throw new IOException(file + " was built from a different graph; rebuild it");
+            }
+            IntBuffer cells = in.asIntBuffer();
+            IntBuffer distances = cells.slice(0, n * n);
+            IntBuffer hops = cells.slice(n * n, n * n);
+            return new RouteTable(n, distances, hops);
+        }
+    }
+
+    int distance(int source, int target) {
+        return distances.get(source * size + target);
+    }
+
+    // Leaves the route in scratch like a PathFinder and returns its length in km, or -1
+    int route(int source, int target, SearchScratch scratch) {
+        int row = source * size;
+        int total = distances.get(row + target);
+        if (total < 0) {
+            scratch.routeLength = 0;
+            return -1;
+        }
+        int length = 0;
+        for (int v = target; v >= 0; v = hops.get(row + v)) {
+            int from = hops.get(row + v);
+            scratch.route[length] = v;
+            scratch.hops[length] = from >= 0 ? distances.get(row + v) - distances.get(row + from) : 0;
+            length++;
+        }
+        Dijkstra.reverse(scratch.route, 0, length);
+        Dijkstra.reverse(scratch.hops, 0, length);
+        scratch.routeLength = length;
+        return total;
+    }
+
+    // Compares every pair against an on-line Dijkstra search; returns the number of disagreements.
+    // Equal-length routes may differ between the two, so a pair only disagrees if the distances do or
+    // the table's route is not a chain of real borders adding up to its distance.
+    int verify(Graph graph) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        ThreadLocal<SearchScratch[]> scratches =
+                ThreadLocal.withInitial(() -> new SearchScratch[] {new SearchScratch(size), new SearchScratch(size)});
+        AtomicInteger mismatches = new AtomicInteger();
+        IntStream.range(0, size).parallel().forEach(source -> {
+            SearchScratch online = scratches.get()[0];
+            SearchScratch table = scratches.get()[1];
+            for (int target = 0; target < size; target++) {
+                int expected = dijkstra.search(source, target, online);
+                int actual = route(source, target, table);
+                if (expected != actual || (actual >= 0 && !isRoute(graph, source, target, actual, table))) {
+                    mismatches.incrementAndGet();
+                }
+            }
+        });
+        return mismatches.get();
+    }
+
+    private static boolean isRoute(Graph graph, int source, int target, int distance, SearchScratch scratch) {
+        int length = scratch.routeLength;
+        if (length == 0 || scratch.route[0] != source || scratch.route[length - 1] != target) {
+            return false;
+        }
+        long total = 0;
+        for (int i = 1; i < length; i++) {
+            if (!hasBorder(graph, scratch.route[i - 1], scratch.route[i], scratch.hops[i])) {
+                return false;
+            }
+            total += scratch.hops[i];
+        }
+        return total == distance;
+    }
+
+    private static boolean hasBorder(Graph graph, int from, int to, int weight) {
+        for (int e = graph.firstEdge(from); e < graph.endEdge(from); e++) {
+            if (graph.target(e) == to && graph.weight(e) == weight) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
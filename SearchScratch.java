@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+// Reusable per-thread state for one shortest-path search. Instead of clearing the arrays between
+// queries, every entry carries the generation it was written in and older generations read as unset.
+class SearchScratch {
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int[] distance;
+    private final int[] previous;
+    private final int[] stamp;
+    private int generation;
+
+    final IndexedMinHeap heap;
+
+    // The route found by the last search; hops[i] is the weight of the border entering route[i]
+    final int[] route;
+    final int[] hops;
+    int routeLength;
+
+    // Nodes taken off the heap by the last search, and borders scanned from them, summed over both directions
+    int settled;
+    int relaxed;
+
+    private SearchScratch backward;
+    private int[] depth;
+    private int[] stack;
+
+    SearchScratch(int capacity) {
+        distance = new int[capacity];
+        previous = new int[capacity];
+        stamp = new int[capacity];
+        heap = new IndexedMinHeap(capacity);
+        route = new int[capacity];
+        hops = new int[capacity];
+    }
+
+    int capacity() {
+        return distance.length;
+    }
+
+    void reset() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heap.clear();
+        routeLength = 0;
+        settled = 0;
+        relaxed = 0;
+    }
+
+    // Second set of state for the reverse half of a bidirectional search
+    SearchScratch backward() {
+        if (backward == null) {
+            backward = new SearchScratch(capacity());
+        }
+        return backward;
+    }
+
+    // Border counts along the search tree, kept only by searches that report them
+    int[] depth() {
+        if (depth == null) {
+            depth = new int[capacity()];
+        }
+        return depth;
+    }
+
+    // Work stack of at least minLength entries for searches that expand nested edges; growing it keeps
+    // the entries already pushed
+    int[] stack(int minLength) {
+        if (stack == null) {
+            stack = new int[Math.max(16, minLength)];
+        } else if (stack.length < minLength) {
+            stack = Arrays.copyOf(stack, Math.max(minLength, 2 * stack.length));
+        }
+        return stack;
+    }
+
+    int distance(int node) {
+        return stamp[node] == generation ? distance[node] : UNREACHED;
+    }
+
+    int previous(int node) {
+        return stamp[node] == generation ? previous[node] : -1;
+    }
+
+    void reach(int node, int dist, int from) {
+        stamp[node] = generation;
+        distance[node] = dist;
+        previous[node] = from;
+    }
+}
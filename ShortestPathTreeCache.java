@@ -0,0 +1,169 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of complete single-source shortest-path trees. A query whose source has a cached
+// tree is answered by walking the predecessor chain from the destination. When every border has the
+// same length in both directions, a cached tree for the destination answers the reversed query too.
+// Trees are immutable once published; the least recently used one is evicted when the cache is full.
+class ShortestPathTreeCache {
+    private static final class Tree {
+        final int[] distance;
+        final int[] previous;
+        volatile long lastUsed;
+
+        Tree(int[] distance, int[] previous) {
+            this.distance = distance;
+            this.previous = previous;
+        }
+    }
+
+    private final Graph graph;
+    private final Dijkstra dijkstra;
+    private final boolean symmetric;
+    private final int capacity;
+    private final ConcurrentHashMap<Integer, Tree> trees = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder reverseHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ShortestPathTreeCache(Graph graph, long maxBytes) {
+        this.graph = graph;
+        this.dijkstra = new Dijkstra(graph);
+        this.symmetric = isSymmetric(graph);
+        // Two int arrays per tree plus object headers
+        long treeBytes = 8L * graph.size() + 64;
+        this.capacity = (int) Math.max(1, Math.min(graph.size(), maxBytes / treeBytes));
+    }
+
+    // Leaves the route in scratch like a PathFinder and returns its length in km, or -1
+    int route(int source, int target, SearchScratch scratch) {
+        Tree tree = trees.get(source);
+        if (tree != null) {
+            hits.increment();
+            tree.lastUsed = clock.incrementAndGet();
+            return walk(tree, target, scratch, false);
+        }
+        if (symmetric) {
+            tree = trees.get(target);
+            if (tree != null) {
+                reverseHits.increment();
+                tree.lastUsed = clock.incrementAndGet();
+                return walk(tree, source, scratch, true);
+            }
+        }
+        misses.increment();
+        tree = build(source, scratch);
+        return walk(tree, target, scratch, false);
+    }
+
+    private Tree build(int source, SearchScratch scratch) {
+        dijkstra.searchAll(source, scratch);
+        int n = graph.size();
+        int[] distance = new int[n];
+        int[] previous = new int[n];
+        for (int v = 0; v < n; v++) {
+            distance[v] = scratch.distance(v);
+            previous[v] = scratch.previous(v);
+        }
+        Tree tree = new Tree(distance, previous);
+        tree.lastUsed = clock.incrementAndGet();
+        Tree raced = trees.putIfAbsent(source, tree);
+        if (raced != null) {
+            return raced;
+        }
+        while (trees.size() > capacity) {
+            evictLeastRecentlyUsed();
+        }
+        return tree;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Integer oldest = null;
+        long oldestUse = Long.MAX_VALUE;
+        for (Map.Entry<Integer, Tree> entry : trees.entrySet()) {
+            if (entry.getValue().lastUsed < oldestUse) {
+                oldestUse = entry.getValue().lastUsed;
+                oldest = entry.getKey();
+            }
+        }
+        if (oldest != null && trees.remove(oldest) != null) {
+            evictions.increment();
+        }
+    }
+
+    // Copies the tree path between the root and node into scratch, root first unless reversed
+    private static int walk(Tree tree, int node, SearchScratch scratch, boolean reversed) {
+        int total = tree.distance[node];
+        if (total == SearchScratch.UNREACHED) {
+            scratch.routeLength = 0;
+            return -1;
+        }
+        int length = 0;
+        for (int v = node; v >= 0; v = tree.previous[v]) {
+            scratch.route[length++] = v;
+        }
+        if (!reversed) {
+            Dijkstra.reverse(scratch.route, 0, length);
+        }
+        // hops[i] is the border entering route[i]; both ends of it lie on the same tree branch
+        scratch.hops[0] = 0;
+        for (int i = 1; i < length; i++) {
+            scratch.hops[i] = Math.abs(tree.distance[scratch.route[i]] - tree.distance[scratch.route[i - 1]]);
+        }
+        scratch.routeLength = length;
+        return total;
+    }
+
+    private static boolean isSymmetric(Graph graph) {
+        for (int u = 0; u < graph.size(); u++) {
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.target(e);
+                boolean matched = false;
+                for (int back = graph.firstEdge(v); back < graph.endEdge(v) && !matched; back++) {
+                    matched = graph.target(back) == u && graph.weight(back) == graph.weight(e);
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long reverseHits() {
+        return reverseHits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    int size() {
+        return trees.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        long served = hits() + reverseHits() + misses();
+        return String.format("trees=%d/%d hits=%d reverseHits=%d misses=%d evictions=%d hitRate=%.1f%%",
+                size(), capacity, hits(), reverseHits(), misses(), evictions(),
+                served == 0 ? 0.0 : 100.0 * (hits() + reverseHits()) / served);
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+// Which countries of the graph existed on any day covered by state_name.tsv. The intervals' start and
+// end days cut the timeline into epochs; each epoch is a bitset of active nodes over the shared CSR
+// graph, so a dated query searches the same arrays and only skips countries outside the mask.
+//
+// The masks are built by one sweep over the sorted interval boundaries, each epoch copying its
+// predecessor and applying that day's changes. An epoch whose changes only touch countries that are
+// not in the graph reuses the previous mask, so memory grows with the distinct country sets, not with
+// the number of dates queried.
+class StateEpochs {
+    private final long[] epochStarts;
+    private final long[][] masks;
+    private final long[] none;
+    private final long firstDay;
+    private final long lastDay;
+    private final int distinctMasks;
+
+    StateEpochs(Graph graph, StateIntervals intervals) {
+        int n = graph.size();
+        int[] node = new int[intervals.size()];
+        long[] boundaries = new long[2 * intervals.size()];
+        int boundaryCount = 0;
+        for (int i = 0; i < intervals.size(); i++) {
+            node[i] = graph.id(intervals.name(i));
+            boundaries[boundaryCount++] = intervals.start(i);
+            // States still alive on the last day of the file stay alive afterwards
+            if (intervals.end(i) < intervals.lastDay()) {
+                boundaries[boundaryCount++] = intervals.end(i) + 1;
+            }
+        }
+        boundaries = Arrays.stream(boundaries, 0, boundaryCount).sorted().distinct().toArray();
+
+        // Events sorted by day: +1 when an interval opens, -1 the day after it closes
+        long[] eventDay = new long[boundaryCount];
+        int[] eventNode = new int[boundaryCount];
+        int[] eventDelta = new int[boundaryCount];
+        int events = 0;
+        for (int i = 0; i < intervals.size(); i++) {
+            if (node[i] < 0) {
+                continue;
+            }
+            eventDay[events] = intervals.start(i);
+            eventNode[events] = node[i];
+            eventDelta[events++] = 1;
+            if (intervals.end(i) < intervals.lastDay()) {
+                eventDay[events] = intervals.end(i) + 1;
+                eventNode[events] = node[i];
+                eventDelta[events++] = -1;
+            }
+        }
+        Integer[] order = new Integer[events];
+        for (int i = 0; i < events; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(eventDay[a], eventDay[b]));
+
+        epochStarts = boundaries;
+        masks = new long[boundaries.length][];
+        int[] openIntervals = new int[n];
+        none = new long[(n + 63) >>> 6];
+        long[] current = none;
+        int distinct = 0;
+        int next = 0;
+        for (int epoch = 0; epoch < boundaries.length; epoch++) {
+            long[] mask = current;
+            boolean copied = false;
+            for (; next < events && eventDay[order[next]] == boundaries[epoch]; next++) {
+                int event = order[next];
+                int u = eventNode[event];
+                boolean wasActive = openIntervals[u] > 0;
+                openIntervals[u] += eventDelta[event];
+                if (wasActive != openIntervals[u] > 0) {
+                    if (!copied) {
+                        mask = mask.clone();
+                        copied = true;
+                    }
+                    mask[u >>> 6] ^= 1L << u;
+                }
+            }
+            if (copied || epoch == 0) {
+                distinct++;
+            }
+            masks[epoch] = mask;
+            current = mask;
+        }
+        firstDay = boundaries.length == 0 ? Long.MAX_VALUE : boundaries[0];
+        lastDay = intervals.lastDay();
+        distinctMasks = distinct;
+    }
+
+    // The active-node bitset for the given day; days before the first state are empty,
+    // days after the end of the file see the last epoch. The returned array must not be modified.
+    long[] activeOn(long epochDay) {
+        if (epochDay < firstDay) {
+            return none;
+        }
+        int epoch = Arrays.binarySearch(epochStarts, epochDay);
+        return masks[epoch >= 0 ? epoch : -epoch - 2];
+    }
+
+    static boolean contains(long[] mask, int node) {
+        return (mask[node >>> 6] & 1L << node) != 0;
+    }
+
+    long firstDay() {
+        return firstDay;
+    }
+
+    long lastDay() {
+        return lastDay;
+    }
+
+    int epochCount() {
+        return masks.length;
+    }
+
+    int distinctMasks() {
+        return distinctMasks;
+    }
+}
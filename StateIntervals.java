@@ -0,0 +1,126 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Every row of state_name.tsv as a validity interval: canonical country name, state code and the
+// first and last day (inclusive, as epoch days) on which the state existed. A country that lapsed and
+// came back, e.g. the Baltic states, has one row per interval.
+class StateIntervals {
+    private String[] names = new String[256];
+    private String[] codes = new String[256];
+    private long[] starts = new long[256];
+    private long[] ends = new long[256];
+    private int count;
+    private long lastDay = Long.MIN_VALUE;
+
+    static StateIntervals load(String filename) throws IOException {
+        StateIntervals intervals = new StateIntervals();
+        try (BufferedReader br = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8))) {
+            br.readLine();
+            String line;
+            int lineNumber = 1;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                String[] parts = line.split("\t");
+                if (parts.length != 5) {
+                    continue;
+                }
+                try {
+                    // Historical and formal names resolve to the name borders.txt uses
+                    intervals.add(CountryResolver.canonicalName(parts[2].trim()), parts[1].trim(),
+                            parseDate(parts[3].trim()), parseDate(parts[4].trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(filename + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return intervals;
+    }
+
+    // Parses a yyyy-MM-dd date into epoch days without going through a formatter or a regex
+    static long parseDate(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            throw new IllegalArgumentException("expected a yyyy-MM-dd date: " + text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        try {
+            return LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("invalid date: " + text, e);
+        }
+    }
+
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("expected a yyyy-MM-dd date: " + text);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void add(String name, String code, long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException(name + " ends before it starts");
+        }
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            codes = Arrays.copyOf(codes, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        names[count] = name;
+        codes[count] = code;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+        lastDay = Math.max(lastDay, end);
+    }
+
+    int size() {
+        return count;
+    }
+
+    String name(int i) {
+        return names[i];
+    }
+
+    String code(int i) {
+        return codes[i];
+    }
+
+    long start(int i) {
+        return starts[i];
+    }
+
+    long end(int i) {
+        return ends[i];
+    }
+
+    // The last day the file covers; states whose interval reaches it still exist
+    long lastDay() {
+        return lastDay;
+    }
+
+    // Canonical country names to state codes for the states that exist on the given day
+    Map<String, String> codesOn(long epochDay) {
+        Map<String, String> countries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (starts[i] <= epochDay && epochDay <= ends[i]) {
+                countries.put(names[i], codes[i]);
+            }
+        }
+        return countries;
+    }
+}
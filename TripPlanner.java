@@ -0,0 +1,153 @@
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Cheapest order in which to visit a set of countries. Every stop gets a full shortest-path tree,
+// built in parallel, which gives the road distance between any two stops and the border-by-border
+// legs to stitch together afterwards. The order itself comes from Held-Karp: dp[visited][last] is the
+// shortest trip from the start through the waypoints in the visited bitmask ending at waypoint last,
+// kept in flat primitive arrays, so up to MAX_WAYPOINTS stops are solved exactly.
+class TripPlanner {
+    static final int MAX_WAYPOINTS = 20;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Graph graph;
+    private final Dijkstra dijkstra;
+
+    TripPlanner(Graph graph) {
+        this.graph = graph;
+        this.dijkstra = new Dijkstra(graph);
+    }
+
+    // The stitched route from start through every waypoint, ending at end or, if end is -1, wherever
+    // is cheapest; null if some stop cannot be reached. Waypoints must be distinct and differ from
+    // start and end. The mask may be null; scratches hands each worker thread its own scratch.
+    Route plan(int start, int[] waypoints, int end, RouteMask mask, Supplier<SearchScratch> scratches) {
+        int w = waypoints.length;
+        if (w > MAX_WAYPOINTS) {
+            throw new IllegalArgumentException("at most " + MAX_WAYPOINTS + " waypoints, got " + w);
+        }
+        // Stops: the waypoints at 0..w-1, then the start, then the end if it is fixed
+        int[] stops = Arrays.copyOf(waypoints, w + (end >= 0 ? 2 : 1));
+        stops[w] = start;
+        if (end >= 0) {
+            stops[w + 1] = end;
+        }
+
+        // The end's tree is never walked from, so it is not built
+        int trees = w + 1;
+        int[][] distance = new int[trees][];
+        int[][] previous = new int[trees][];
+        IntStream.range(0, trees).parallel().forEach(i -> {
+            SearchScratch scratch = scratches.get();
+            dijkstra.searchAll(stops[i], scratch, mask);
+            int n = graph.size();
+            int[] dist = new int[n];
+            int[] prev = new int[n];
+            for (int v = 0; v < n; v++) {
+                dist[v] = scratch.distance(v);
+                prev[v] = scratch.previous(v);
+            }
+            distance[i] = dist;
+            previous[i] = prev;
+        });
+
+        int[] order = w == 0 ? new int[0] : bestOrder(stops, w, end >= 0, distance);
+        if (order == null) {
+            return null;
+        }
+        return stitch(stops, order, end >= 0, distance, previous);
+    }
+
+    // Held-Karp over the waypoints; returns their visiting order, or null if no order reaches every stop
+    private static int[] bestOrder(int[] stops, int w, boolean fixedEnd, int[][] distance) {
+        int start = w;
+        int full = (1 << w) - 1;
+        int[] dp = new int[(full + 1) * w];
+        byte[] from = new byte[(full + 1) * w];
+        Arrays.fill(dp, UNREACHABLE);
+        for (int j = 0; j < w; j++) {
+            dp[(1 << j) * w + j] = distance[start][stops[j]];
+            from[(1 << j) * w + j] = -1;
+        }
+        // Only set bits of visited can be last and only clear ones can be next
+        for (int visited = 1; visited < full; visited++) {
+            int base = visited * w;
+            for (int lastBits = visited; lastBits != 0; lastBits &= lastBits - 1) {
+                int last = Integer.numberOfTrailingZeros(lastBits);
+                int cost = dp[base + last];
+                if (cost == UNREACHABLE) {
+                    continue;
+                }
+                int[] fromLast = distance[last];
+                for (int nextBits = ~visited & full; nextBits != 0; nextBits &= nextBits - 1) {
+                    int next = Integer.numberOfTrailingZeros(nextBits);
+                    int leg = fromLast[stops[next]];
+                    if (leg == UNREACHABLE) {
+                        continue;
+                    }
+                    int slot = (visited | 1 << next) * w + next;
+                    if (cost + leg < dp[slot]) {
+                        dp[slot] = cost + leg;
+                        from[slot] = (byte) last;
+                    }
+                }
+            }
+        }
+
+        // Close the trip at the fixed end, or stop after the cheapest last waypoint
+        long best = UNREACHABLE;
+        int bestLast = -1;
+        for (int last = 0; last < w; last++) {
+            int cost = dp[full * w + last];
+            int toEnd = fixedEnd ? distance[last][stops[w + 1]] : 0;
+            if (cost != UNREACHABLE && toEnd != UNREACHABLE && (long) cost + toEnd < best) {
+                best = (long) cost + toEnd;
+                bestLast = last;
+            }
+        }
+        if (bestLast < 0) {
+            return null;
+        }
+        int[] order = new int[w];
+        int visited = full;
+        for (int i = w - 1, last = bestLast; i >= 0; i--) {
+            order[i] = last;
+            int before = from[visited * w + last];
+            visited &= ~(1 << last);
+            last = before;
+        }
+        return order;
+    }
+
+    // Joins the legs start -> order[0] -> ... -> end by walking each leg's tree back from its target
+    private Route stitch(int[] stops, int[] order, boolean fixedEnd, int[][] distance, int[][] previous) {
+        int w = order.length;
+        int legs = w + (fixedEnd ? 1 : 0);
+        int[] path = new int[graph.size() * Math.max(legs, 1) + 1];
+        int[] hops = new int[path.length];
+        int length = 0;
+        path[length++] = stops[w];
+        int total = 0;
+        int from = w;
+        for (int leg = 0; leg < legs; leg++) {
+            int to = leg < w ? order[leg] : w + 1;
+            int target = stops[to];
+            if (distance[from][target] == UNREACHABLE) {
+                return null;
+            }
+            total += distance[from][target];
+            // Walk back to the leg's start, then flip the new segment in place
+            int segment = length;
+            for (int node = target; node != stops[from]; node = previous[from][node]) {
+                path[length] = node;
+                hops[length] = distance[from][node] - distance[from][previous[from][node]];
+                length++;
+            }
+            Dijkstra.reverse(path, segment, length);
+            Dijkstra.reverse(hops, segment, length);
+            from = to;
+        }
+        return new Route(Arrays.copyOf(path, length), Arrays.copyOf(hops, length), total);
+    }
+}
@@ -0,0 +1,61 @@
+package iroadtrip.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Latency of a single findPath call for a short, a medium and a continent-spanning route.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindPathBenchmark {
+
+    @Param({"dijkstra", "astar", "bidijkstra", "biastar"})
+    public String strategy;
+
+    @Param({"short", "medium", "continental"})
+    public String route;
+
+    private Object trip;
+    private String from;
+    private String to;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        trip = RoadTrip.create();
+        RoadTrip.setStrategy(trip, strategy);
+        switch (route) {
+            case "short":
+                from = "France";
+                to = "Germany";
+                break;
+            case "medium":
+                from = "Portugal";
+                to = "Poland";
+                break;
+            default:
+                from = "Portugal";
+                to = "China";
+                break;
+        }
+    }
+
+    @Benchmark
+    public Object findPath() throws Throwable {
+        return RoadTrip.findPath(trip, from, to);
+    }
+}
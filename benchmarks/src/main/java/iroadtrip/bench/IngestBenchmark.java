@@ -0,0 +1,62 @@
+package iroadtrip.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Load time of each data file on its own and of the whole constructor, cold and from the snapshot.
+// The cold constructor runs with --no-snapshot, so its figure is parsing and building only, without
+// rewriting the snapshot file on every call.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+
+    // constructFromSnapshot needs a snapshot that matches the data files; writing it is not measured
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws Throwable {
+        RoadTrip.close(RoadTrip.create("--rebuild"));
+    }
+
+    @Benchmark
+    public Object readBorders() throws Throwable {
+        return RoadTrip.readBorders();
+    }
+
+    @Benchmark
+    public Object readCapitalDistances() throws Throwable {
+        return RoadTrip.loadDistances();
+    }
+
+    @Benchmark
+    public Object readStateName() throws Throwable {
+        return RoadTrip.readStateName();
+    }
+
+    @Benchmark
+    public Object constructFromSources() throws Throwable {
+        Object trip = RoadTrip.create("--no-snapshot");
+        RoadTrip.close(trip);
+        return trip;
+    }
+
+    @Benchmark
+    public Object constructFromSnapshot() throws Throwable {
+        Object trip = RoadTrip.create();
+        RoadTrip.close(trip);
+        return trip;
+    }
+}
@@ -0,0 +1,103 @@
+package iroadtrip.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.List;
+
+// IRoadTrip and its helpers live in the unnamed package, which a named package cannot import, and
+// JMH refuses benchmarks in the unnamed package. The benchmarks therefore bind to the public API
+// through method handles resolved once here; the JIT inlines calls through static final handles.
+final class RoadTrip {
+    private static final MethodHandle CONSTRUCTOR;
+    private static final MethodHandle FIND_PATH;
+    private static final MethodHandle GET_PATH;
+    private static final MethodHandle SET_STRATEGY;
+    private static final MethodHandle COUNTRIES;
+    private static final MethodHandle METRICS;
+    private static final MethodHandle CLOSE;
+    private static final MethodHandle READ_BORDERS;
+    private static final MethodHandle READ_STATE_NAME;
+    private static final MethodHandle LOAD_DISTANCES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> roadTrip = Class.forName("IRoadTrip");
+            Class<?> pathInfo = Class.forName("IRoadTrip$PathInfo");
+            CONSTRUCTOR = lookup.findConstructor(roadTrip, MethodType.methodType(void.class, String[].class));
+            FIND_PATH = lookup.findVirtual(roadTrip, "findPath", MethodType.methodType(pathInfo, String.class, String.class));
+            GET_PATH = lookup.findVirtual(pathInfo, "getPath", MethodType.methodType(List.class));
+            SET_STRATEGY = lookup.findVirtual(roadTrip, "setStrategy", MethodType.methodType(void.class, String.class));
+            COUNTRIES = lookup.findVirtual(roadTrip, "getCountries", MethodType.methodType(List.class));
+            METRICS = lookup.findVirtual(roadTrip, "getMetrics", MethodType.methodType(String.class));
+            CLOSE = lookup.findVirtual(roadTrip, "close", MethodType.methodType(void.class));
+            READ_BORDERS = lookup.findStatic(roadTrip, "readBorders", MethodType.methodType(java.util.Map.class, String.class));
+            READ_STATE_NAME = lookup.findStatic(roadTrip, "readStateName", MethodType.methodType(java.util.Map.class, String.class));
+            // CapitalDistances is package-private, so go through reflection before unreflecting
+            Method load = Class.forName("CapitalDistances").getDeclaredMethod("load", String.class);
+            load.setAccessible(true);
+            LOAD_DISTANCES = lookup.unreflect(load);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private RoadTrip() {
+    }
+
+    // Data files are read from -Diroadtrip.data (default: the working directory)
+    static String dataFile(String name) {
+        return Paths.get(System.getProperty("iroadtrip.data", "."), name).toString();
+    }
+
+    static Object create(String... flags) throws Throwable {
+        String[] args = new String[3 + flags.length];
+        args[0] = dataFile("borders.txt");
+        args[1] = dataFile("capdist.csv");
+        args[2] = dataFile("state_name.tsv");
+        System.arraycopy(flags, 0, args, 3, flags.length);
+        return CONSTRUCTOR.invoke(args);
+    }
+
+    static Object findPath(Object trip, String from, String to) throws Throwable {
+        return FIND_PATH.invoke(trip, from, to);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> path(Object pathInfo) throws Throwable {
+        return (List<String>) GET_PATH.invoke(pathInfo);
+    }
+
+    static void setStrategy(Object trip, String strategy) throws Throwable {
+        SET_STRATEGY.invoke(trip, strategy);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> countries(Object trip) throws Throwable {
+        return (List<String>) COUNTRIES.invoke(trip);
+    }
+
+    static String metrics(Object trip) throws Throwable {
+        return (String) METRICS.invoke(trip);
+    }
+
+    // Unregisters the instance's metrics MBean, so benchmarks that construct many do not pile them up
+    static void close(Object trip) throws Throwable {
+        CLOSE.invoke(trip);
+    }
+
+    static Object readBorders() throws Throwable {
+        return READ_BORDERS.invoke(dataFile("borders.txt"));
+    }
+
+    static Object readStateName() throws Throwable {
+        return READ_STATE_NAME.invoke(dataFile("state_name.tsv"));
+    }
+
+    static Object loadDistances() throws Throwable {
+        return LOAD_DISTANCES.invoke(dataFile("capdist.csv"));
+    }
+}
@@ -0,0 +1,171 @@
+package iroadtrip.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Generates synthetic maps of growing size and loads each through the normal IRoadTrip constructor,
+// reporting per size: load time from the text files and from the snapshot, the heap the loaded
+// IRoadTrip keeps, and findPath latency between random countries. Each size runs in a fresh JVM with
+// the same -Xmx, so one map's heap, JIT profile and metrics MBean cannot skew the next. The growth
+// columns give log(cost ratio) / log(size ratio) against the previous size: about 1 is linear, and
+// clearly above 1 marks a superlinear step worth a look in that size's load phases.
+//
+//     java -Xmx4g -cp benchmarks/target/benchmarks.jar iroadtrip.bench.ScalingHarness \
+//             [--sizes 10000,100000,1000000] [--queries n] [--dir d] [--seed s]
+public final class ScalingHarness {
+    private ScalingHarness() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length > 0 && args[0].equals("--measure")) {
+            measure(Paths.get(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]));
+            return;
+        }
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        int queries = 200;
+        long seed = 1;
+        Path root = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--queries":
+                    queries = Math.max(1, Integer.parseInt(args[i + 1]));
+                    break;
+                case "--dir":
+                    root = Paths.get(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (root == null) {
+            root = Files.createTempDirectory("iroadtrip-scaling");
+        }
+
+        System.out.printf("%9s %9s %9s %10s %10s %8s %9s %9s %9s %6s %6s %6s%n", "countries", "borders",
+                "files MB", "load ms", "snapshot", "heap MB", "mean us", "p50 us", "p99 us", "load^", "heap^",
+                "query^");
+        double[] previous = null;
+        for (int size : sizes) {
+            Path directory = root.resolve(String.valueOf(size));
+            SyntheticMap map = SyntheticMap.generate(size, seed);
+            map.write(directory);
+            long bytes = 0;
+            for (String file : new String[] {"borders.txt", "capdist.csv", "state_name.tsv"}) {
+                bytes += Files.size(directory.resolve(file));
+            }
+
+            List<String> report = runChild(directory, queries, seed);
+            if (report == null) {
+                System.out.printf("%9d %9d %9.1f  failed; larger sizes skipped%n", size, map.borders, bytes / 1e6);
+                break;
+            }
+            // countries, load ms, snapshot ms, heap MB, mean us, p50 us, p99 us, then the load phases
+            double[] row = Arrays.stream(report.get(0).split("\t")).mapToDouble(Double::parseDouble).toArray();
+            System.out.printf("%9d %9d %9.1f %10.1f %10.1f %8.1f %9.1f %9.1f %9.1f %6s %6s %6s%n", size, map.borders,
+                    bytes / 1e6, row[1], row[2], row[3], row[4], row[5], row[6],
+                    growth(previous, row, 1), growth(previous, row, 3), growth(previous, row, 4));
+            System.out.println("          " + report.get(1));
+            previous = row;
+        }
+    }
+
+    // Exponent of the cost's growth against the size's since the previous row
+    private static String growth(double[] previous, double[] row, int column) {
+        if (previous == null || previous[column] <= 0 || row[column] <= 0) {
+            return "-";
+        }
+        return String.format("%.2f", Math.log(row[column] / previous[column]) / Math.log(row[0] / previous[0]));
+    }
+
+    // Measures one size in a child JVM; returns its two report lines, or null if it failed
+    private static List<String> runChild(Path directory, int queries, long seed) throws IOException,
+            InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        ProcessBuilder builder = new ProcessBuilder(java, "-Xmx" + (Runtime.getRuntime().maxMemory() >> 20) + "m",
+                "-cp", System.getProperty("java.class.path"), ScalingHarness.class.getName(),
+                "--measure", directory.toString(), String.valueOf(queries), String.valueOf(seed));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process child = builder.start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return child.waitFor() == 0 && lines.size() == 2 ? lines : null;
+    }
+
+    // Child side: prints one tab-separated row of figures and one line of load phases
+    private static void measure(Path directory, int queries, long seed) throws Throwable {
+        System.setProperty("iroadtrip.data", directory.toString());
+        // Nothing else is allowed to print to stdout, which carries the report
+        PrintStream report = System.out;
+        System.setOut(System.err);
+
+        long baseline = usedHeap();
+        long started = System.nanoTime();
+        Object trip = RoadTrip.create("--rebuild");
+        double loadMillis = (System.nanoTime() - started) / 1e6;
+        double heapMegabytes = (usedHeap() - baseline) / 1e6;
+        String phases = RoadTrip.metrics(trip).lines().findFirst().orElse("");
+
+        started = System.nanoTime();
+        Object reloaded = RoadTrip.create();
+        double snapshotMillis = (System.nanoTime() - started) / 1e6;
+        RoadTrip.close(reloaded);
+
+        List<String> countries = RoadTrip.countries(trip);
+        Random random = new Random(seed);
+        // A fifth of the queries again as warm-up, so the JIT has compiled the search before timing
+        for (int i = 0; i < queries / 5; i++) {
+            RoadTrip.findPath(trip, pick(countries, random), pick(countries, random));
+        }
+        long[] nanos = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            String from = pick(countries, random);
+            String to = pick(countries, random);
+            long start = System.nanoTime();
+            RoadTrip.findPath(trip, from, to);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double mean = Arrays.stream(nanos).average().orElse(0) / 1e3;
+
+        report.printf(Locale.ROOT, "%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n", countries.size(), loadMillis, snapshotMillis,
+                heapMegabytes, mean, nanos[queries / 2] / 1e3, nanos[Math.min(queries - 1, queries * 99 / 100)] / 1e3);
+        report.println(phases);
+    }
+
+    private static String pick(List<String> countries, Random random) {
+        return countries.get(random.nextInt(countries.size()));
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,50 @@
+package iroadtrip.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// One operation routes every country to every other country.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SweepBenchmark {
+
+    @Param({"dijkstra", "astar"})
+    public String strategy;
+
+    private Object trip;
+    private List<String> countries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        trip = RoadTrip.create();
+        RoadTrip.setStrategy(trip, strategy);
+        countries = RoadTrip.countries(trip);
+    }
+
+    @Benchmark
+    public void allSources(Blackhole blackhole) throws Throwable {
+        for (String from : countries) {
+            for (String to : countries) {
+                blackhole.consume(RoadTrip.findPath(trip, from, to));
+            }
+        }
+    }
+}
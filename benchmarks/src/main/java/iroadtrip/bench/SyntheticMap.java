@@ -0,0 +1,229 @@
+package iroadtrip.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Writes borders.txt, capdist.csv and state_name.tsv for a made-up map of any size, in the formats of
+// the bundled files, so load and query costs can be measured far beyond 253 countries.
+//
+// Capitals sit on a jittered square grid CELL_KM apart. Each country borders its east and south grid
+// neighbours and, in some cells, one diagonal, so the map stays planar like a real one; a few countries
+// are islands without borders. Every distance is the straight line between two capitals, so capdist.csv
+// and the border weights agree. Up to ALL_PAIRS_LIMIT countries capdist.csv lists every pair like the
+// real file; beyond that only bordering pairs, since n squared rows would not fit on disk.
+//
+// Names are letters only (consonant-vowel syllables, e.g. "Zotabe") and state codes are upper-case
+// letters, shorter than any name, so no name can be mistaken for a code, a border length or an alias.
+//
+//     java -cp benchmarks/target/benchmarks.jar iroadtrip.bench.SyntheticMap <dir> <countries> [seed]
+final class SyntheticMap {
+    static final int ALL_PAIRS_LIMIT = 1000;
+
+    private static final double CELL_KM = 300;
+    private static final double JITTER = 0.35;
+    private static final double DIAGONAL_ODDS = 0.3;
+    private static final double ISLAND_ODDS = 0.02;
+    private static final String CONSONANTS = "bdfghklmnprstvz";
+    private static final String VOWELS = "aeiou";
+
+    final int size;
+    final int borders;
+    final String[] names;
+    final String[] codes;
+
+    private final double[] x;
+    private final double[] y;
+    private final int[][] neighbours;
+    private final int[] startYear;
+
+    private SyntheticMap(int size, long seed) {
+        Random random = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(size));
+        this.size = size;
+        names = new String[size];
+        codes = new String[size];
+        x = new double[size];
+        y = new double[size];
+        startYear = new int[size];
+        for (int u = 0; u < size; u++) {
+            names[u] = name(u, size);
+            codes[u] = code(u, size);
+            x[u] = (u % side + (random.nextDouble() * 2 - 1) * JITTER) * CELL_KM;
+            y[u] = (u / side + (random.nextDouble() * 2 - 1) * JITTER) * CELL_KM;
+            // A tenth of the countries were founded later, so dated queries see several epochs
+            startYear[u] = random.nextInt(10) == 0 ? 1900 + random.nextInt(100) : 1816;
+        }
+
+        boolean[] island = new boolean[size];
+        for (int u = 0; u < size; u++) {
+            island[u] = random.nextDouble() < ISLAND_ODDS;
+        }
+        List<List<Integer>> adjacency = new ArrayList<>(size);
+        for (int u = 0; u < size; u++) {
+            adjacency.add(new ArrayList<>(6));
+        }
+        int count = 0;
+        for (int u = 0; u < size; u++) {
+            int column = u % side;
+            int east = column + 1 < side ? u + 1 : -1;
+            int south = u + side;
+            int southEast = east >= 0 ? south + 1 : -1;
+            // At most one diagonal per cell, so no two borders cross
+            boolean diagonal = random.nextDouble() < DIAGONAL_ODDS;
+            boolean falling = random.nextBoolean();
+            int[][] candidates = {
+                    {u, east}, {u, south},
+                    diagonal && falling ? new int[] {u, southEast} : new int[] {-1, -1},
+                    diagonal && !falling ? new int[] {east, south} : new int[] {-1, -1}};
+            for (int[] pair : candidates) {
+                int a = pair[0];
+                int b = pair[1];
+                if (a >= 0 && b >= 0 && a < size && b < size && !island[a] && !island[b]) {
+                    adjacency.get(a).add(b);
+                    adjacency.get(b).add(a);
+                    count++;
+                }
+            }
+        }
+        borders = count;
+        neighbours = new int[size][];
+        for (int u = 0; u < size; u++) {
+            neighbours[u] = adjacency.get(u).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    static SyntheticMap generate(int size, long seed) {
+        if (size < 1) {
+            throw new IllegalArgumentException("a map needs at least one country");
+        }
+        return new SyntheticMap(size, seed);
+    }
+
+    long kilometres(int a, int b) {
+        return Math.round(Math.hypot(x[a] - x[b], y[a] - y[b]));
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        writeBorders(directory.resolve("borders.txt"));
+        writeDistances(directory.resolve("capdist.csv"));
+        writeStateNames(directory.resolve("state_name.tsv"));
+    }
+
+    // "Name = Neighbour 1,234 km; Other 56 km"; the border lengths are not used for routing
+    private void writeBorders(Path file) throws IOException {
+        Random lengths = new Random(size);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(128);
+            for (int u = 0; u < size; u++) {
+                line.setLength(0);
+                line.append(names[u]).append(" =");
+                for (int i = 0; i < neighbours[u].length; i++) {
+                    line.append(i == 0 ? " " : "; ").append(names[neighbours[u][i]]).append(' ');
+                    appendLength(line, 10 + lengths.nextInt(2000)).append(" km");
+                }
+                out.append(line).append('\n');
+            }
+        }
+    }
+
+    // Thousands separated by commas, as borders.txt writes them
+    private static StringBuilder appendLength(StringBuilder line, int km) {
+        if (km < 1000) {
+            return line.append(km);
+        }
+        line.append(km / 1000).append(',');
+        int rest = km % 1000;
+        return line.append(rest < 100 ? "0" : "").append(rest < 10 ? "0" : "").append(rest);
+    }
+
+    // numa,ida,numb,idb,kmdist,midist, in both directions like the real file
+    private void writeDistances(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("numa,ida,numb,idb,kmdist,midist\n");
+            StringBuilder line = new StringBuilder(64);
+            for (int a = 0; a < size; a++) {
+                if (size <= ALL_PAIRS_LIMIT) {
+                    for (int b = 0; b < size; b++) {
+                        if (a != b) {
+                            out.append(distanceRow(line, a, b));
+                        }
+                    }
+                } else {
+                    for (int b : neighbours[a]) {
+                        out.append(distanceRow(line, a, b));
+                    }
+                }
+            }
+        }
+    }
+
+    private StringBuilder distanceRow(StringBuilder line, int a, int b) {
+        long km = kilometres(a, b);
+        line.setLength(0);
+        return line.append(a + 1).append(',').append(codes[a]).append(',').append(b + 1).append(',')
+                .append(codes[b]).append(',').append(km).append(',').append(Math.round(km * 0.621371)).append('\n');
+    }
+
+    // statenumber, stateid, countryname, start, end; every country still exists on the last day
+    private void writeStateNames(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("statenumber\tstateid\tcountryname\tstart\tend\n");
+            for (int u = 0; u < size; u++) {
+                out.append(String.valueOf(u + 1)).append('\t').append(codes[u]).append('\t').append(names[u])
+                        .append('\t').append(String.valueOf(startYear[u])).append("-01-01\t2020-12-31\n");
+            }
+        }
+    }
+
+    // Distinct for every index below size; the index is scrambled so grid neighbours get unrelated names
+    static String name(int index, int size) {
+        int syllables = 3;
+        long space = (long) Math.pow(CONSONANTS.length() * VOWELS.length(), syllables);
+        while (space < size) {
+            syllables++;
+            space *= CONSONANTS.length() * VOWELS.length();
+        }
+        // 7919 is prime and shares no factor with the 3s and 5s of the syllable count
+        long value = (index * 7919L) % space;
+        StringBuilder name = new StringBuilder(2 * syllables);
+        for (int i = 0; i < syllables; i++) {
+            int syllable = (int) (value % (CONSONANTS.length() * VOWELS.length()));
+            value /= CONSONANTS.length() * VOWELS.length();
+            name.append(CONSONANTS.charAt(syllable / VOWELS.length())).append(VOWELS.charAt(syllable % VOWELS.length()));
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    // Three or more upper-case letters, always shorter than a name
+    static String code(int index, int size) {
+        int letters = 3;
+        for (long space = 26 * 26 * 26; space < size; space *= 26) {
+            letters++;
+        }
+        char[] code = new char[letters];
+        for (int i = letters - 1, value = index; i >= 0; i--, value /= 26) {
+            code[i] = (char) ('A' + value % 26);
+        }
+        return new String(code);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticMap <dir> <countries> [seed]");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[1]);
+        SyntheticMap map = generate(size, args.length > 2 ? Long.parseLong(args[2]) : 1);
+        map.write(Paths.get(args[0]));
+        System.err.printf("Wrote %d countries and %d borders to %s%n", map.size, map.borders, args[0]);
+    }
+}
@@ -0,0 +1,46 @@
+package iroadtrip.bench;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Random country pairs queried concurrently against one shared IRoadTrip; run with -t to vary threads.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ThroughputBenchmark {
+
+    private Object trip;
+    private String[] countries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        trip = RoadTrip.create();
+        List<String> names = RoadTrip.countries(trip);
+        countries = names.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public Object randomPairs() throws Throwable {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return RoadTrip.findPath(trip, countries[random.nextInt(countries.length)],
+                countries[random.nextInt(countries.length)]);
+    }
+}